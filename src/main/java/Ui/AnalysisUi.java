@@ -3,6 +3,8 @@ package Ui;
 import utils.ReportUtils;
 import utils.DateContext;
 import utils.JsonUtils;
+import utils.RollupCube;
+import pojo.Money;
 import pojo.Transaction;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -17,11 +19,8 @@ import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.YearMonth;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 import java.io.File;
 import java.io.IOException;
 
@@ -48,30 +47,22 @@ public class AnalysisUi {
         int m = DateContext.getMonth();
         lineChart.setTitle(String.format("%d-%02d Daily Spending Trend", y, m));
 
-        List<Transaction> transactions = JsonUtils.getTransactionsByMonth(y, m);
+        // Daily sums and the month's row count come from the pre-aggregated rollup
+        YearMonth ym = YearMonth.of(y, m);
+        RollupCube rollup = JsonUtils.rollup();
+        int transactionCount = rollup.month(ym).count();
         XYChart.Series<Number, Number> series = new XYChart.Series<>();
         series.setName("Daily Expenses");
 
-        // Initialize daily sum map
-        Map<Integer, Double> dailySum = new TreeMap<>();
-        for (int day = 1; day <= 31; day++) {
-            dailySum.put(day, 0.0);
-        }
-
-        // Aggregate transaction amounts by day
-        for (Transaction t : transactions) {
-            try {
-                LocalDateTime date = LocalDateTime.parse(t.getTransactionTime().replace("\"", ""),
-                        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-                int day = date.getDayOfMonth();
-                dailySum.merge(day, t.getAmount(), Double::sum);
-            } catch (Exception e) {
-                System.err.println("Error parsing date: " + t.getTransactionTime());
-            }
-        }
+        // Daily sums in fen, index = day of month
+        long[] dailyFen = new long[32];
+        rollup.byDay(ym.atDay(1), ym.atEndOfMonth())
+                .forEach((date, totals) -> dailyFen[date.getDayOfMonth()] = totals.amountCents());
 
-        for (Map.Entry<Integer, Double> entry : dailySum.entrySet()) {
-            series.getData().add(new XYChart.Data<>(entry.getKey(), entry.getValue()));
+        long totalFen = 0;
+        for (int day = 1; day <= 31; day++) {
+            series.getData().add(new XYChart.Data<>(day, Money.yuan(dailyFen[day])));
+            totalFen += dailyFen[day];
         }
 
         lineChart.getData().add(series);
@@ -83,20 +74,20 @@ public class AnalysisUi {
         aiPredictionTextArea.setWrapText(true);
         aiPredictionTextArea.setPrefRowCount(5);
 
-        double totalSpent = dailySum.values().stream().mapToDouble(Double::doubleValue).sum();
-        double avgDaily = totalSpent / dailySum.size();
+        int days = dailyFen.length - 1;
+        double avgDaily = Money.yuan(totalFen) / days;
 
         String analysis = String.format("""
                 Financial Analysis Summary:
                 • Total Transactions: %d
-                • Total Spent: ¥%.2f
+                • Total Spent: ¥%s
                 • Average Daily Spending: ¥%.2f
                 • Number of Active Days: %d
                 """,
-                transactions.size(),
-                totalSpent,
+                transactionCount,
+                Money.format(totalFen),
                 avgDaily,
-                dailySum.size()
+                days
         );
 
         aiPredictionTextArea.setText(analysis);
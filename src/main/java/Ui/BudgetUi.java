@@ -1,14 +1,16 @@
 package Ui;
 
 // Imports
+import javafx.concurrent.Worker;
 import javafx.scene.web.WebEngine;
 import javafx.scene.web.WebView;
 import org.commonmark.node.*;
 import org.commonmark.parser.Parser;
 import org.commonmark.renderer.html.HtmlRenderer;
-import pojo.Transaction;
+import pojo.Money;
 import utils.JsonUtils;
 import utils.DateContext;
+import java.util.ArrayList;
 import java.util.List;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -19,8 +21,11 @@ import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import utils.DeepSeek;
 import utils.FinanceContext;
+import utils.IoExecutors;
 
+import java.time.YearMonth;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class BudgetUi {
 
@@ -31,7 +36,9 @@ public class BudgetUi {
     private String sessionId = UUID.randomUUID().toString(); // Changed from final to non-final
     private final WebView chatView = new WebView();
     private final WebEngine webEngine = chatView.getEngine();
-    private final StringBuilder htmlBuffer = new StringBuilder();
+    /** Scripts issued before the page finished loading, run once it has */
+    private final List<String> pendingScripts = new ArrayList<>();
+    private int messageSeq;
     private final Parser mdParser = Parser.builder().build();
     private final HtmlRenderer mdRenderer = HtmlRenderer.builder().build();
     private final TextField chatInput = new TextField();
@@ -57,10 +64,7 @@ public class BudgetUi {
         newChatBtn.setStyle("-fx-background-color:#555; -fx-text-fill:white;");
         newChatBtn.setOnAction(e -> {
             sessionId = UUID.randomUUID().toString();
-            htmlBuffer.setLength(0);
-            htmlBuffer.append("<html><head><style>body{font-family:sans-serif;padding:10px;} "
-                    + ".user{color:#0d47a1;} .ai{color:#004d40;} </style></head><body>");
-            webEngine.loadContent(htmlBuffer.toString());
+            resetChat();
         });
 
         ImageView icon = new ImageView("https://brandlogos.net/wp-content/uploads/2025/02/deepseek_logo_icon-logo_brandlogos.net_s5bgc.png");
@@ -71,9 +75,13 @@ public class BudgetUi {
 
         // Initialize WebView
         chatView.setPrefHeight(400);
-        htmlBuffer.append("<html><head><style>body{font-family:sans-serif;padding:10px;} "
-                + ".user{color:#0d47a1;} .ai{color:#004d40;} </style></head><body>");
-        webEngine.loadContent(htmlBuffer.toString());
+        webEngine.getLoadWorker().stateProperty().addListener((obs, oldState, state) -> {
+            if (state == Worker.State.SUCCEEDED) {
+                pendingScripts.forEach(webEngine::executeScript);
+                pendingScripts.clear();
+            }
+        });
+        resetChat();
 
         chatInput.setPromptText("Enter your message...");
         chatInput.setOnAction(e -> sendMsg());
@@ -96,23 +104,17 @@ public class BudgetUi {
 
     /* -------------- Update Card Section -------------- */
     private void updateCards() {
-        // Get current month's transactions
-        List<Transaction> txs = JsonUtils.getTransactionsByMonth(
-                DateContext.getYear(),
-                DateContext.getMonth()
-        );
-
-        double monthlyExpense = 0;
-        for (Transaction t : txs) {
-            monthlyExpense += t.getAmount();
-        }
+        // Current month's total from the pre-aggregated rollup
+        long monthlyExpense = JsonUtils.rollup()
+                .month(YearMonth.of(DateContext.getYear(), DateContext.getMonth()))
+                .amountCents();
 
         // Clear old cards
         cards.getChildren().clear();
 
         // Create new cards
         Card storageCard = new Card("Monthly Expense", monthlyExpense);
-        Card goalCard = new Card("Monthly Income", FinanceContext.getMonthlyIncome());
+        Card goalCard = new Card("Monthly Income", Money.fen(FinanceContext.getMonthlyIncome()));
 
         // Add new cards to layout
         cards.getChildren().addAll(storageCard.box, goalCard.box);
@@ -126,22 +128,78 @@ public class BudgetUi {
         appendMarkdown("**You:** " + txt, "user");
         chatInput.clear();
 
-        new Thread(() -> {
-            String reply = DeepSeek.chat(sessionId, txt);
-            Platform.runLater(() -> appendMarkdown("**AI:** " + reply, "ai"));
-        }).start();
+        // Tokens arrive on the I/O thread; coalesce them into at most one repaint per FX pulse
+        String replyId = appendMarkdown("**AI:** …", "ai");
+        StringBuilder partial = new StringBuilder();
+        AtomicBoolean repaintQueued = new AtomicBoolean();
+        IoExecutors.shared().execute(() -> {
+            String reply = DeepSeek.chatStream(sessionId, txt, token -> {
+                synchronized (partial) {
+                    partial.append(token);
+                }
+                if (!repaintQueued.getAndSet(true)) {
+                    Platform.runLater(() -> {
+                        repaintQueued.set(false);
+                        String md;
+                        synchronized (partial) {
+                            md = partial.toString();
+                        }
+                        replaceMarkdown(replyId, "**AI:** " + md);
+                    });
+                }
+            });
+            Platform.runLater(() -> replaceMarkdown(replyId, "**AI:** " + reply));
+        });
+    }
+
+    private static final String CHAT_PAGE = "<html><head><style>body{font-family:sans-serif;padding:10px;} "
+            + ".user{color:#0d47a1;} .ai{color:#004d40;} </style></head><body><div id=\"chat\"></div></body></html>";
+
+    /** Load an empty chat page; messages are then added to it without reloading */
+    private void resetChat() {
+        pendingScripts.clear();
+        webEngine.loadContent(CHAT_PAGE);
+    }
+
+    /** Render a markdown message and append it to the page; returns the element id */
+    private String appendMarkdown(String md, String cssClass) {
+        String id = "msg" + (++messageSeq);
+        runScript("var d=document.createElement('div');d.id=" + jsString(id) + ";d.className=" + jsString(cssClass)
+                + ";d.innerHTML=" + jsString(renderMarkdown(md)) + ";document.getElementById('chat').appendChild(d);"
+                + "window.scrollTo(0,document.body.scrollHeight);");
+        return id;
     }
 
-    /** Render a markdown message and append to WebView */
-    private void appendMarkdown(String md, String cssClass) {
+    /** Re-render one message in place, e.g. as a streamed reply grows */
+    private void replaceMarkdown(String id, String md) {
+        runScript("var d=document.getElementById(" + jsString(id) + ");if(d){d.innerHTML=" + jsString(renderMarkdown(md))
+                + ";window.scrollTo(0,document.body.scrollHeight);}");
+    }
+
+    private String renderMarkdown(String md) {
         Node document = mdParser.parse(md);
-        String html = mdRenderer.render(document);
-        htmlBuffer.append("<div class=\"")
-                .append(cssClass)
-                .append("\">")
-                .append(html)
-                .append("</div>");
-        webEngine.loadContent(htmlBuffer.toString() + "</body></html>");
+        return mdRenderer.render(document);
+    }
+
+    private void runScript(String script) {
+        if (webEngine.getLoadWorker().getState() == Worker.State.SUCCEEDED) webEngine.executeScript(script);
+        else pendingScripts.add(script);
+    }
+
+    /** Quote a string as a JavaScript literal */
+    private static String jsString(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 16).append('"');
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\u2028', '\u2029' -> sb.append(String.format("\\u%04x", (int) c));
+                default -> sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
     }
 
     /* ==================================================================== */
@@ -150,7 +208,8 @@ public class BudgetUi {
     private static class Card {
         private final VBox box = new VBox(8);
 
-        Card(String title, double value){
+        /** @param fen amount in fen (1/100 yuan) */
+        Card(String title, long fen){
             box.setPadding(new Insets(20));
             box.setAlignment(Pos.TOP_LEFT);
             box.setPrefSize(280, 140);
@@ -159,11 +218,11 @@ public class BudgetUi {
             Label lbl = new Label(title);
             lbl.setStyle("-fx-font-size:18; -fx-text-fill:#0d47a1; -fx-font-weight:bold;");
 
-            Label money = new Label(String.format("$%,.2f", value));
+            Label money = new Label("$" + Money.formatGrouped(fen));
             money.setStyle("-fx-font-size:26; -fx-text-fill:#0d47a1; -fx-font-weight:bold;");
 
             /* --- Progress Bar --- */
-            double monthlyExpense = value;
+            double monthlyExpense = Money.yuan(fen);
             double monthlyIncome = FinanceContext.getMonthlyIncome();
             double progress = monthlyIncome > 0 ? monthlyExpense / monthlyIncome : 0;
 
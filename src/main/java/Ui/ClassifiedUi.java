@@ -6,13 +6,13 @@ import javafx.scene.chart.*;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.text.Font;
+import pojo.Category;
+import pojo.Money;
 import pojo.Transaction;
-import utils.JsonUtils;
+import utils.TransactionStore;
 
 import java.time.LocalDate;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Updated ClassifiedUi — Removed hardcoded month & supports unquoted category fields.
@@ -22,29 +22,25 @@ public class ClassifiedUi extends NavigationSuper {
         LocalDate now = LocalDate.now();
 
         // Retrieve transaction data from transactionData.json
-        List<Transaction> txs = JsonUtils.readTransactionsFromClasspath("transactionData.json");
+        List<Transaction> txs = TransactionStore.get().all();
 
-        // Classify and accumulate category amounts
-        Map<String, Double> catSum = new HashMap<>();
-        double total = 0;
+        // Classify and accumulate category amounts, in fen
+        long[] catFen = new long[Category.values().length];
         for (Transaction t : txs) {
-            String c = normalize(t.getTransactionType());
-            double amount = t.getAmount();
-            catSum.merge(c, amount, Double::sum);
-            total += amount;
+            catFen[t.getCategory().ordinal()] += t.getAmountCents();
         }
 
         // Get spending for each category
-        double housing = catSum.getOrDefault("housing", 0.0);
-        double dining = catSum.getOrDefault("food and dining", 0.0);
-        double entertainment = catSum.getOrDefault("entertainment", 0.0);
-        double transport = catSum.getOrDefault("transportation", 0.0);
-        double shopping = catSum.getOrDefault("shopping", 0.0);
-        double health = catSum.getOrDefault("healthcare", 0.0);
-        double education = catSum.getOrDefault("education and training", 0.0);
-        double communication = catSum.getOrDefault("communication", 0.0);
-        double investment = catSum.getOrDefault("finance and investment", 0.0);
-        double transfer = catSum.getOrDefault("transfer accounts", 0.0);
+        double housing = Money.yuan(catFen[Category.HOUSING.ordinal()]);
+        double dining = Money.yuan(catFen[Category.FOOD_AND_DINING.ordinal()]);
+        double entertainment = Money.yuan(catFen[Category.ENTERTAINMENT.ordinal()]);
+        double transport = Money.yuan(catFen[Category.TRANSPORTATION.ordinal()]);
+        double shopping = Money.yuan(catFen[Category.SHOPPING.ordinal()]);
+        double health = Money.yuan(catFen[Category.HEALTHCARE.ordinal()]);
+        double education = Money.yuan(catFen[Category.EDUCATION_AND_TRAINING.ordinal()]);
+        double communication = Money.yuan(catFen[Category.COMMUNICATION.ordinal()]);
+        double investment = Money.yuan(catFen[Category.FINANCE_AND_INVESTMENT.ordinal()]);
+        double transfer = Money.yuan(catFen[Category.TRANSFER_ACCOUNTS.ordinal()]);
 
         // Bar chart for category-wise spending
         CategoryAxis x = new CategoryAxis();
@@ -91,9 +87,4 @@ public class ClassifiedUi extends NavigationSuper {
 
         return box;
     }
-
-    // Normalize category strings (remove quotes, trim, lowercase)
-    private static String normalize(String s) {
-        return s == null ? "" : s.replace("\"", "").toLowerCase().trim();
-    }
 }
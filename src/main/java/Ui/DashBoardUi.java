@@ -7,11 +7,15 @@ import javafx.scene.chart.*;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.text.Font;
-import pojo.Transaction;
+import pojo.Category;
+import pojo.Money;
+import utils.AggregationEngine;
 import utils.DateContext;
 import utils.FinanceContext;
 import utils.JsonUtils;
+import utils.RollupCube;
 
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
 
@@ -55,40 +59,34 @@ public class DashBoardUi {
         topCtrl.getChildren().addAll(new Label("Year:"), yearBox,
                 new Label("Month:"), monthBox, loadBtn);
 
-        // Load transaction data and classify expenses by type
-        List<Transaction> txs = JsonUtils.getTransactionsByMonth(year, month);
-        double housing = 0, transport = 0, dining = 0, entertainment = 0, shopping = 0,
-                health = 0, education = 0, communication = 0, investment = 0, transfer = 0;
-        double sum = 0;
-        for (Transaction t : txs) {
-            double amt = t.getAmount();
-            sum += amt;
-            switch (t.getTransactionType().replace("\"", "").toLowerCase()) {
-                case "housing" -> housing += amt;
-                case "transportation" -> transport += amt;
-                case "food and dining" -> dining += amt;
-                case "entertainment" -> entertainment += amt;
-                case "shopping" -> shopping += amt;
-                case "healthcare" -> health += amt;
-                case "education and training" -> education += amt;
-                case "communication" -> communication += amt;
-                case "finance and investment" -> investment += amt;
-                case "transfer accounts" -> transfer += amt;
-            }
-        }
+        // Month totals by category, answered from the pre-aggregated rollup
+        RollupCube rollup = JsonUtils.rollup();
+        YearMonth ym = YearMonth.of(year, month);
+        Map<Category, AggregationEngine.Totals> byCategory = rollup.byCategory(ym, ym);
+        double housing = amount(byCategory, Category.HOUSING);
+        double transport = amount(byCategory, Category.TRANSPORTATION);
+        double dining = amount(byCategory, Category.FOOD_AND_DINING);
+        double entertainment = amount(byCategory, Category.ENTERTAINMENT);
+        double shopping = amount(byCategory, Category.SHOPPING);
+        double health = amount(byCategory, Category.HEALTHCARE);
+        double education = amount(byCategory, Category.EDUCATION_AND_TRAINING);
+        double communication = amount(byCategory, Category.COMMUNICATION);
+        double investment = amount(byCategory, Category.FINANCE_AND_INVESTMENT);
+        double transfer = amount(byCategory, Category.TRANSFER_ACCOUNTS);
+        long sumFen = rollup.month(ym).amountCents();
 
         // Financial summary
         double totalAssets = FinanceContext.getTotalAssets();
         double monthlyIncome = FinanceContext.getMonthlyIncome();
         double savingsGoal = FinanceContext.getSavingsGoal();
-        double goalProgress = (totalAssets + monthlyIncome - sum) / savingsGoal;
+        double goalProgress = (totalAssets + monthlyIncome - Money.yuan(sumFen)) / savingsGoal;
 
         HBox summary = new HBox(20);
         summary.setPadding(new Insets(20));
         summary.setAlignment(Pos.CENTER);
         summary.getChildren().addAll(
                 card("Total Assets", String.format("¥%,.2f", totalAssets), "#cce5ff", "#004085"),
-                card("Monthly Expense", String.format("¥%,.2f", sum), "#f8d7da", "#721c24"),
+                card("Monthly Expense", "¥" + Money.formatGrouped(sumFen), "#f8d7da", "#721c24"),
                 card("Monthly Income", String.format("¥%,.2f", monthlyIncome), "#d4edda", "#155724"),
                 card("Savings Goal", String.format("¥%,.2f", savingsGoal), "#f8d7da", "#721c24"),
                 card("Goal Progress", String.format("%.1f%%", goalProgress * 100), "#fff3cd", "#856404")
@@ -173,6 +171,11 @@ public class DashBoardUi {
         return box;
     }
 
+    /** Amount of one category in the month, all directions together */
+    private static double amount(Map<Category, AggregationEngine.Totals> byCategory, Category c) {
+        return byCategory.getOrDefault(c, AggregationEngine.Totals.ZERO).amount();
+    }
+
     // Create a bar chart data entry with color
     private static XYChart.Data<String, Number> bar(String name, double val) {
         XYChart.Data<String, Number> d = new XYChart.Data<>(name, val);
@@ -17,6 +17,7 @@ import javafx.stage.Stage;
 import pojo.Transaction;
 import javafx.collections.FXCollections;
 import utils.JsonUtils;
+import utils.TransactionStore;
 
 public class TradeListUi {
 
@@ -100,7 +101,7 @@ public class TradeListUi {
         );
 
         // Load data from JSON file
-        List<Transaction> transactions = JsonUtils.readTransactionsFromClasspath("transactionData.json");
+        List<Transaction> transactions = TransactionStore.get().all();
         transactionData.clear();
         transactionData.addAll(transactions);
         transactionTable.setItems(transactionData);
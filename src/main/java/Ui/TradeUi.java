@@ -14,9 +14,14 @@ import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
 import javafx.concurrent.Task;
 import pojo.Transaction;
+import utils.ImportResult;
+import utils.IoExecutors;
 import utils.JsonUtils;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 public class TradeUi {
     private static ProgressBar csvProgress;
@@ -75,7 +80,7 @@ public class TradeUi {
             FileChooser fc = new FileChooser();
             fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
             File f = fc.showOpenDialog(null);
-            if (f != null) processCsv(f);
+            if (f != null) processCsv(List.of(f));
         });
 
         // ==== Transaction List Buttons ====
@@ -134,39 +139,39 @@ public class TradeUi {
     // ===== CSV Drag & Drop Import Handler =====
     private static void handleFileDrop(DragEvent e) {
         Dragboard db = e.getDragboard();
-        boolean ok = false;
+        List<File> csvFiles = new ArrayList<>();
         if (db.hasFiles()) {
             for (File f : db.getFiles()) {
-                if (f.getName().endsWith(".csv")) {
-                    processCsv(f);
-                    ok = true;
-                }
+                if (f.getName().endsWith(".csv")) csvFiles.add(f);
             }
         }
-        e.setDropCompleted(ok);
+        // All dropped exports go through one import: one classification pass, one ledger commit
+        if (!csvFiles.isEmpty()) processCsv(csvFiles);
+        e.setDropCompleted(!csvFiles.isEmpty());
         e.consume();
     }
 
-    private static void processCsv(File f) {
-        Task<Void> task = new Task<>() {
+    private static void processCsv(List<File> files) {
+        List<String> paths = files.stream().map(File::getAbsolutePath).toList();
+        String names = files.stream().map(File::getName).collect(Collectors.joining(", "));
+        Task<ImportResult> task = new Task<>() {
             @Override
-            protected Void call() throws Exception {
+            protected ImportResult call() throws Exception {
                 csvProgress.setVisible(true);
-                JsonUtils.parseCsv2Json(f.getAbsolutePath(), p -> updateProgress(p, 1.0));
-                return null;
+                return JsonUtils.importCsvFiles(paths, p -> updateProgress(p, 1.0));
             }
         };
         csvProgress.progressProperty().bind(task.progressProperty());
 
         task.setOnSucceeded(e -> {
             csvProgress.setVisible(false);
-            alert("Imported: " + f.getName());
+            alert("Imported: " + names + " (" + task.getValue() + ")");
         });
         task.setOnFailed(e -> {
             csvProgress.setVisible(false);
             alert("Import failed: " + task.getException().getMessage());
         });
-        new Thread(task).start();
+        IoExecutors.shared().execute(task);
     }
 
     private static void alert(String m) {
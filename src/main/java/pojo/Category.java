@@ -0,0 +1,46 @@
+package pojo;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** Spending categories the classifier may assign; labels are the values stored in transactionType */
+public enum Category {
+    FOOD_AND_DINING("food and dining"),
+    TRANSPORTATION("transportation"),
+    HOUSING("housing"),
+    ENTERTAINMENT("entertainment"),
+    SHOPPING("shopping"),
+    HEALTHCARE("healthcare"),
+    EDUCATION_AND_TRAINING("education and training"),
+    COMMUNICATION("communication"),
+    FINANCE_AND_INVESTMENT("finance and investment"),
+    TRANSFER_ACCOUNTS("transfer accounts"),
+    UNKNOWN("unknown");
+
+    private static final Category[] VALUES = values();
+
+    private final String label;
+
+    Category(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    /** Parse a stored transactionType, tolerating quotes, case and whitespace */
+    public static Category of(String raw) {
+        if (raw == null) return UNKNOWN;
+        String s = raw.replace("\"", "").trim().toLowerCase();
+        for (Category c : VALUES) {
+            if (c.label.equals(s)) return c;
+        }
+        return UNKNOWN;
+    }
+
+    /** Labels of every real category, i.e. everything except {@link #UNKNOWN} */
+    public static List<String> labels() {
+        return Arrays.stream(VALUES).filter(c -> c != UNKNOWN).map(Category::label).toList();
+    }
+}
@@ -0,0 +1,32 @@
+package pojo;
+
+/** Direction of a transaction, parsed from the raw 收/支 column */
+public enum IncExp {
+    INCOME("收入"),
+    EXPENSE("支出"),
+    NEUTRAL("不计收支"), // Alipay "不计收支", WeChat "/"
+    UNKNOWN("");
+
+    private final String label;
+
+    IncExp(String label) {
+        this.label = label;
+    }
+
+    /** Original Chinese label as written in the bill export */
+    public String label() {
+        return label;
+    }
+
+    /** Parse a raw value, tolerating embedded quotes and whitespace */
+    public static IncExp of(String raw) {
+        if (raw == null) return UNKNOWN;
+        String s = raw.replace("\"", "").trim();
+        return switch (s) {
+            case "收入" -> INCOME;
+            case "支出" -> EXPENSE;
+            case "不计收支", "/" -> NEUTRAL;
+            default -> UNKNOWN;
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package pojo;
+
+/**
+ * Money in long minor units (fen, 1/100 yuan). Sums of fen are exact integer additions, so
+ * totals never drift the way repeated double addition does, and accumulating needs no objects.
+ * Doubles only appear at the edges: amounts parsed from bills, and chart values.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    /** Fen of a yuan amount, rounded half-up to the nearest fen */
+    public static long fen(double yuan) {
+        return Math.round(yuan * 100);
+    }
+
+    /** Yuan value of a fen amount, e.g. for charts */
+    public static double yuan(long fen) {
+        return fen / 100.0;
+    }
+
+    /** Plain decimal with two places, e.g. {@code -1234.50} (same text as {@code %.2f}) */
+    public static String format(long fen) {
+        return append(new StringBuilder(24), fen, false).toString();
+    }
+
+    /** Decimal with two places and thousands separators, e.g. {@code 1,234.50} (like {@code %,.2f}) */
+    public static String formatGrouped(long fen) {
+        return append(new StringBuilder(28), fen, true).toString();
+    }
+
+    private static StringBuilder append(StringBuilder sb, long fen, boolean grouped) {
+        if (fen < 0) sb.append('-');
+        String yuan = Long.toString(Math.abs(fen / 100)); // fen / 100 is never Long.MIN_VALUE
+        long cents = Math.abs(fen % 100);
+        if (grouped) {
+            int first = yuan.length() % 3 == 0 ? 3 : yuan.length() % 3;
+            sb.append(yuan, 0, first);
+            for (int i = first; i < yuan.length(); i += 3) sb.append(',').append(yuan, i, i + 3);
+        } else {
+            sb.append(yuan);
+        }
+        return sb.append('.').append((char) ('0' + cents / 10)).append((char) ('0' + cents % 10));
+    }
+}
@@ -1,13 +1,30 @@
 package pojo;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * One ledger row. The JSON fields stay raw strings for file compatibility; typed views
+ * (time, direction, category, cents) are parsed once when a field is set and cached,
+ * so aggregation loops never parse or strip quotes per row.
+ */
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class Transaction {
+    /** Value of {@link #getEpochSecond()} when the time is missing or unparsable */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private String transactionTime;    // Transaction time
     private String transactionType;    // Transaction type
     private String counterparty;       // Counterparty
@@ -19,4 +36,75 @@ public class Transaction {
     private String transactionId;      // Transaction ID
     private String merchantId;         // Merchant order number
     private String note;               // Note or comment
+
+    /* ---- Typed views, derived from the fields above ---- */
+    @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private transient LocalDateTime time;
+    @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private transient long epochSecond = NO_TIME;
+    @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private transient IncExp flow = IncExp.UNKNOWN;
+    @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private transient Category category = Category.UNKNOWN;
+    @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private transient long amountCents;
+
+    public Transaction(String transactionTime, String transactionType, String counterparty, String item,
+                       String incExp, double amount, String paymentMethod, String status,
+                       String transactionId, String merchantId, String note) {
+        setTransactionTime(transactionTime);
+        setTransactionType(transactionType);
+        this.counterparty = counterparty;
+        this.item = item;
+        setIncExp(incExp);
+        setAmount(amount);
+        this.paymentMethod = paymentMethod;
+        this.status = status;
+        this.transactionId = transactionId;
+        this.merchantId = merchantId;
+        this.note = note;
+    }
+
+    public void setTransactionTime(String transactionTime) {
+        this.transactionTime = transactionTime;
+        try {
+            time = transactionTime == null ? null
+                    : LocalDateTime.parse(transactionTime.replace("\"", "").trim(), TIME_FORMAT);
+        } catch (Exception e) {
+            time = null;
+        }
+        epochSecond = time == null ? NO_TIME : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public void setTransactionType(String transactionType) {
+        this.transactionType = transactionType;
+        category = Category.of(transactionType);
+    }
+
+    public void setIncExp(String incExp) {
+        this.incExp = incExp;
+        flow = IncExp.of(incExp);
+    }
+
+    public void setAmount(double amount) {
+        this.amount = amount;
+        amountCents = Money.fen(amount);
+    }
+
+    /** Parsed transaction time, or null when missing/unparsable */
+    @JsonIgnore
+    public LocalDateTime getTime() { return time; }
+
+    /** Wall-clock time as epoch seconds at UTC offset, or {@link #NO_TIME} */
+    @JsonIgnore
+    public long getEpochSecond() { return epochSecond; }
+
+    @JsonIgnore
+    public IncExp getFlow() { return flow; }
+
+    @JsonIgnore
+    public Category getCategory() { return category; }
+
+    @JsonIgnore
+    public long getAmountCents() { return amountCents; }
 }
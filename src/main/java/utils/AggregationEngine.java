@@ -0,0 +1,530 @@
+package utils;
+
+import pojo.Category;
+import pojo.IncExp;
+import pojo.Money;
+import pojo.Transaction;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongConsumer;
+
+/**
+ * Single-pass aggregation over the ledger.
+ * <p>
+ * One scan adds every row into primitive per-day accumulators (cents and row counts per
+ * {@link IncExp}), one set per requested group-by key. Windows are resolved afterwards by summing
+ * day slots, so any number of windows, including ones relative to the earliest transaction such as
+ * a billing cycle, costs no extra pass over the rows. Amounts are added in cents.
+ */
+public final class AggregationEngine {
+
+    /** Dimensions a window can be broken down by */
+    public enum GroupBy { INC_EXP, CATEGORY, PAYMENT_METHOD, DAY }
+
+    /**
+     * A date range, inclusive at both ends. Either absolute ({@code from}/{@code to}), the first
+     * {@code firstDays} days from the earliest transaction, or everything (including rows without
+     * a usable time).
+     */
+    public record Window(String name, LocalDate from, LocalDate to, int firstDays) {
+
+        public static Window all(String name) {
+            return new Window(name, null, null, 0);
+        }
+
+        public static Window between(String name, LocalDate from, LocalDate to) {
+            return new Window(name, from, to, 0);
+        }
+
+        /** Days 0..days-1 counted from the earliest transaction's date, like a billing cycle */
+        public static Window firstDays(String name, int days) {
+            return new Window(name, null, null, days);
+        }
+
+        boolean isAll() {
+            return from == null && to == null && firstDays == 0;
+        }
+    }
+
+    /** Sums in cents and row counts; neutral and unrecognised flows are folded into "other" */
+    public record Totals(long incomeCents, long expenseCents, long otherCents,
+                         int incomeCount, int expenseCount, int otherCount) {
+
+        public static final Totals ZERO = new Totals(0, 0, 0, 0, 0, 0);
+
+        public double income() { return Money.yuan(incomeCents); }
+
+        public double expense() { return Money.yuan(expenseCents); }
+
+        public long netCents() { return incomeCents - expenseCents; }
+
+        public int count() { return incomeCount + expenseCount + otherCount; }
+
+        /** Sum of every row regardless of direction, as the dashboards total a month */
+        public long amountCents() { return incomeCents + expenseCents + otherCents; }
+
+        public double amount() { return Money.yuan(amountCents()); }
+
+        /** Totals from per-{@link IncExp} sums and counts, indexed by ordinal */
+        static Totals of(long[] centsByFlow, int[] countsByFlow) {
+            long other = 0;
+            int otherCount = 0;
+            for (IncExp f : IncExp.values()) {
+                if (f == IncExp.INCOME || f == IncExp.EXPENSE) continue;
+                other += centsByFlow[f.ordinal()];
+                otherCount += countsByFlow[f.ordinal()];
+            }
+            int in = IncExp.INCOME.ordinal(), ex = IncExp.EXPENSE.ordinal();
+            return new Totals(centsByFlow[in], centsByFlow[ex], other, countsByFlow[in], countsByFlow[ex], otherCount);
+        }
+    }
+
+    /**
+     * Aggregates of one window; maps for group-bys that were not requested are empty.
+     * {@code byOtherType} splits the {@link Category#UNKNOWN} rows of {@code byCategory} by their
+     * own type label ({@link #typeLabel(String)}), so types outside the enum stay visible.
+     */
+    public record WindowResult(Window window, LocalDate from, LocalDate to, Totals total,
+                               Map<IncExp, Totals> byIncExp, Map<Category, Totals> byCategory,
+                               Map<String, Totals> byOtherType,
+                               Map<String, Totals> byPaymentMethod, SortedMap<LocalDate, Totals> byDay) {
+
+        /** Share of the window's expense spent in {@code category}, in percent */
+        public double expenseShare(Category category) {
+            Totals t = byCategory.getOrDefault(category, Totals.ZERO);
+            return total.expenseCents() == 0 ? 0 : t.expenseCents() * 100.0 / total.expenseCents();
+        }
+    }
+
+    /**
+     * Result of one scan. {@code start}/{@code end} are the earliest and latest transaction dates
+     * (null without dated rows); {@code undated} counts rows without a usable time.
+     * {@code incExpLabels} holds the first raw incExp spelling seen for each flow, in ledger order.
+     */
+    public record Result(LocalDate start, LocalDate end, int rows, int undated, Map<IncExp, String> incExpLabels,
+                         Map<String, WindowResult> windows) {
+
+        public WindowResult window(String name) {
+            return windows.get(name);
+        }
+    }
+
+    private AggregationEngine() {
+    }
+
+    /**
+     * Aggregate {@code transactions} for every window in one scan. Lists of at least
+     * {@link #PARALLEL_THRESHOLD} rows are scanned in parallel on the common fork-join pool.
+     */
+    public static Result aggregate(Iterable<Transaction> transactions, List<Window> windows, Set<GroupBy> groupBys) {
+        if (transactions instanceof List<Transaction> list && list instanceof RandomAccess
+                && list.size() >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            return aggregate(list, windows, groupBys, ForkJoinPool.commonPool());
+        }
+        Partial p = new Partial(groupBys);
+        for (Transaction t : transactions) p.add(t);
+        return result(p, windows, groupBys);
+    }
+
+    /**
+     * Parallel scan on {@code pool}: the list is split in halves down to chunks of a few ten
+     * thousand rows, each chunk fills its own primitive accumulators, and the partial results are
+     * merged pairwise on the way back up. Same result as the sequential scan.
+     */
+    public static Result aggregate(List<Transaction> transactions, List<Window> windows, Set<GroupBy> groupBys,
+                                   ForkJoinPool pool) {
+        int leaf = Math.max(MIN_LEAF_ROWS, transactions.size() / (pool.getParallelism() * 4));
+        Partial p = pool.invoke(new ScanTask(transactions, groupBys, leaf));
+        return result(p, windows, groupBys);
+    }
+
+    /** Row count from which {@link #aggregate(Iterable, List, Set)} goes parallel */
+    public static final int PARALLEL_THRESHOLD = Integer.getInteger("aggregation.parallelThreshold", 200_000);
+    private static final int MIN_LEAF_ROWS = 16_384;
+
+    private static final class ScanTask extends RecursiveTask<Partial> {
+        private final List<Transaction> rows;
+        private final Set<GroupBy> groupBys;
+        private final int leaf;
+
+        ScanTask(List<Transaction> rows, Set<GroupBy> groupBys, int leaf) {
+            this.rows = rows;
+            this.groupBys = groupBys;
+            this.leaf = leaf;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (rows.size() <= leaf) {
+                Partial p = new Partial(groupBys);
+                for (int i = 0, n = rows.size(); i < n; i++) p.add(rows.get(i));
+                return p;
+            }
+            int mid = rows.size() >>> 1;
+            ScanTask right = new ScanTask(rows.subList(mid, rows.size()), groupBys, leaf);
+            right.fork();
+            Partial left = new ScanTask(rows.subList(0, mid), groupBys, leaf).compute();
+            left.merge(right.join());
+            return left;
+        }
+    }
+
+    /**
+     * Accumulators of one scan (or one chunk of a parallel scan). Key 0 holds all rows, then one
+     * key per category, then one per raw payment method value and one per raw type of an
+     * {@link Category#UNKNOWN} row, in order of first appearance.
+     */
+    private static final class Partial {
+        final DayCube cube = new DayCube();
+        final Map<String, Integer> paymentKeys = new HashMap<>();
+        final Map<String, Integer> otherTypeKeys = new HashMap<>();
+        final String[] flowLabels = new String[IncExp.values().length];
+        final boolean byCategory;
+        final boolean byPayment;
+        final int categoryBase;
+        int rows;
+
+        Partial(Set<GroupBy> groupBys) {
+            byCategory = groupBys.contains(GroupBy.CATEGORY);
+            byPayment = groupBys.contains(GroupBy.PAYMENT_METHOD);
+            cube.addKey();
+            categoryBase = cube.keys();
+            if (byCategory) for (int i = 0; i < Category.values().length; i++) cube.addKey();
+        }
+
+        void add(Transaction t) {
+            rows++;
+            long epoch = t.getEpochSecond();
+            long day = epoch == Transaction.NO_TIME ? 0 : Math.floorDiv(epoch, 86400L);
+            int slot = epoch == Transaction.NO_TIME ? DayCube.UNDATED : cube.slot(day);
+            int flow = t.getFlow().ordinal();
+            long cents = t.getAmountCents();
+            if (flowLabels[flow] == null) flowLabels[flow] = t.getIncExp();
+            cube.add(0, slot, day, flow, cents);
+            if (byCategory) {
+                cube.add(categoryBase + t.getCategory().ordinal(), slot, day, flow, cents);
+                if (t.getCategory() == Category.UNKNOWN) {
+                    cube.add(key(otherTypeKeys, t.getTransactionType()), slot, day, flow, cents);
+                }
+            }
+            if (byPayment) cube.add(key(paymentKeys, t.getPaymentMethod()), slot, day, flow, cents);
+        }
+
+        int key(Map<String, Integer> keys, String raw) {
+            Integer key = keys.get(raw);
+            if (key == null) {
+                key = cube.addKey();
+                keys.put(raw, key);
+            }
+            return key;
+        }
+
+        void merge(Partial other) {
+            rows += other.rows;
+            for (int k = 0; k < other.categoryBase + (byCategory ? Category.values().length : 0); k++) {
+                cube.addAll(k, other.cube, k);
+            }
+            other.paymentKeys.forEach((raw, key) -> cube.addAll(key(paymentKeys, raw), other.cube, key));
+            other.otherTypeKeys.forEach((raw, key) -> cube.addAll(key(otherTypeKeys, raw), other.cube, key));
+            for (int f = 0; f < flowLabels.length; f++) {
+                if (flowLabels[f] == null) flowLabels[f] = other.flowLabels[f]; // this chunk precedes other
+            }
+            cube.undatedRows += other.cube.undatedRows;
+        }
+    }
+
+    private static Result result(Partial p, List<Window> windows, Set<GroupBy> groupBys) {
+        DayCube cube = p.cube;
+        boolean byCategory = p.byCategory;
+        int categoryBase = p.categoryBase;
+        Map<String, Integer> paymentKeys = p.paymentKeys;
+        Category[] categories = Category.values();
+        int rows = p.rows;
+
+        LocalDate start = cube.isEmpty() ? null : LocalDate.ofEpochDay(cube.minDay);
+        LocalDate end = cube.isEmpty() ? null : LocalDate.ofEpochDay(cube.maxDay);
+        Map<String, WindowResult> out = new LinkedHashMap<>();
+        for (Window w : windows) {
+            long from, to;
+            if (w.from() != null || w.to() != null) {
+                from = w.from() == null ? Long.MIN_VALUE : w.from().toEpochDay();
+                to = w.to() == null ? Long.MAX_VALUE : w.to().toEpochDay();
+            } else if (cube.isEmpty()) {
+                from = Long.MAX_VALUE; // empty range
+                to = Long.MIN_VALUE;
+            } else {
+                from = cube.minDay;
+                to = w.firstDays() > 0 ? cube.minDay + w.firstDays() - 1 : cube.maxDay;
+            }
+            boolean undated = w.isAll();
+
+            Totals total = cube.sum(0, from, to, undated);
+            Map<IncExp, Totals> incExp = new EnumMap<>(IncExp.class);
+            if (groupBys.contains(GroupBy.INC_EXP)) {
+                for (IncExp f : IncExp.values()) {
+                    Totals t = cube.sumFlow(0, f.ordinal(), from, to, undated);
+                    if (t.count() > 0) incExp.put(f, t);
+                }
+            }
+            Map<Category, Totals> category = new EnumMap<>(Category.class);
+            if (byCategory) {
+                for (Category c : categories) {
+                    Totals t = cube.sum(categoryBase + c.ordinal(), from, to, undated);
+                    if (t.count() > 0) category.put(c, t);
+                }
+            }
+            Map<String, Totals> otherType = new TreeMap<>();
+            for (Map.Entry<String, Integer> e : p.otherTypeKeys.entrySet()) {
+                Totals t = cube.sum(e.getValue(), from, to, undated);
+                if (t.count() > 0) otherType.merge(typeLabel(e.getKey()), t, AggregationEngine::plus);
+            }
+            Map<String, Totals> payment = new TreeMap<>();
+            for (Map.Entry<String, Integer> e : paymentKeys.entrySet()) {
+                Totals t = cube.sum(e.getValue(), from, to, undated);
+                if (t.count() > 0) payment.merge(cleanLabel(e.getKey()), t, AggregationEngine::plus);
+            }
+            SortedMap<LocalDate, Totals> day = new TreeMap<>();
+            if (groupBys.contains(GroupBy.DAY) && !cube.isEmpty()) {
+                cube.forEachDay(from, to, d -> {
+                    Totals t = cube.sum(0, d, d, false);
+                    if (t.count() > 0) day.put(LocalDate.ofEpochDay(d), t);
+                });
+            }
+            out.put(w.name(), new WindowResult(w, dateOf(from, start), dateOf(to, end),
+                    total, incExp, category, otherType, payment, day));
+        }
+        Map<IncExp, String> labels = new EnumMap<>(IncExp.class);
+        for (IncExp f : IncExp.values()) {
+            if (p.flowLabels[f.ordinal()] != null) labels.put(f, p.flowLabels[f.ordinal()]);
+        }
+        return new Result(start, end, rows, cube.undatedRows, labels, out);
+    }
+
+    /** Epoch day as a date; open bounds (and bounds of an empty ledger) fall back to {@code fallback} */
+    private static LocalDate dateOf(long epochDay, LocalDate fallback) {
+        return epochDay == Long.MIN_VALUE || epochDay == Long.MAX_VALUE ? fallback : LocalDate.ofEpochDay(epochDay);
+    }
+
+    static Totals plus(Totals a, Totals b) {
+        return new Totals(a.incomeCents() + b.incomeCents(), a.expenseCents() + b.expenseCents(),
+                a.otherCents() + b.otherCents(), a.incomeCount() + b.incomeCount(),
+                a.expenseCount() + b.expenseCount(), a.otherCount() + b.otherCount());
+    }
+
+    static Totals minus(Totals a, Totals b) {
+        return new Totals(a.incomeCents() - b.incomeCents(), a.expenseCents() - b.expenseCents(),
+                a.otherCents() - b.otherCents(), a.incomeCount() - b.incomeCount(),
+                a.expenseCount() - b.expenseCount(), a.otherCount() - b.otherCount());
+    }
+
+    private static String cleanLabel(String raw) {
+        return raw == null ? "" : raw.replace("\"", "").trim();
+    }
+
+    /**
+     * Report label of a stored transactionType: the category label for enum types, otherwise the
+     * raw type without quotes, so user-entered types keep showing up under their own names.
+     * Missing types and spellings of "unknown" fall back to {@link Category#UNKNOWN}.
+     */
+    static String typeLabel(String raw) {
+        Category c = Category.of(raw);
+        String s = cleanLabel(raw);
+        return c != Category.UNKNOWN || s.isEmpty() || s.equalsIgnoreCase(c.label()) ? c.label() : s;
+    }
+
+    /**
+     * Growable day × key × flow accumulators. Day slots are contiguous epoch days starting at
+     * {@code base}; capacity doubles towards whichever side a new day falls on, up to
+     * {@link #MAX_DENSE_DAYS}. Days that would stretch the dense range further (an outlier such as
+     * 1970 or 2099 from a bad import row) are kept in per-key sorted maps instead, so one stray
+     * date cannot allocate decades of slots for every key.
+     */
+    private static final class DayCube {
+        static final int UNDATED = -1;
+        /** Slot of a day kept outside the dense range */
+        static final int SPARSE = -2;
+        static final int FLOWS = IncExp.values().length;
+        /** About 22 years of days */
+        static final int MAX_DENSE_DAYS = 1 << 13;
+        private static final int INCOME = IncExp.INCOME.ordinal();
+        private static final int EXPENSE = IncExp.EXPENSE.ordinal();
+
+        private final List<long[]> cents = new ArrayList<>();
+        private final List<int[]> counts = new ArrayList<>();
+        private final List<long[]> undatedCents = new ArrayList<>();
+        private final List<int[]> undatedCounts = new ArrayList<>();
+        /** Per key: epoch day → cents per flow followed by counts per flow */
+        private final List<TreeMap<Long, long[]>> sparse = new ArrayList<>();
+        private long base;
+        private int capacity;
+        long minDay = Long.MAX_VALUE;
+        long maxDay = Long.MIN_VALUE;
+        int undatedRows;
+
+        int keys() {
+            return cents.size();
+        }
+
+        int addKey() {
+            cents.add(new long[capacity * FLOWS]);
+            counts.add(new int[capacity * FLOWS]);
+            undatedCents.add(new long[FLOWS]);
+            undatedCounts.add(new int[FLOWS]);
+            sparse.add(new TreeMap<>());
+            return cents.size() - 1;
+        }
+
+        boolean isEmpty() {
+            return minDay == Long.MAX_VALUE;
+        }
+
+        /** Slot index of an epoch day, growing the dense range when it stays within the cap */
+        int slot(long day) {
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+            if (capacity == 0) {
+                base = day;
+                resize(day, 64);
+            } else if (day < base) {
+                long needed = base + capacity - day;
+                if (needed > MAX_DENSE_DAYS) return SPARSE;
+                int newCapacity = (int) Math.min(MAX_DENSE_DAYS, Math.max(capacity * 2L, needed + capacity));
+                resize(base + capacity - newCapacity, newCapacity);
+            } else if (day >= base + capacity) {
+                long needed = day - base + 1;
+                if (needed > MAX_DENSE_DAYS) return SPARSE;
+                resize(base, (int) Math.min(MAX_DENSE_DAYS, Math.max(capacity * 2L, needed)));
+            }
+            return (int) (day - base);
+        }
+
+        private void resize(long newBase, int newCapacity) {
+            int shift = (int) (base - newBase) * FLOWS;
+            for (int k = 0; k < cents.size(); k++) {
+                long[] c = new long[newCapacity * FLOWS];
+                int[] n = new int[newCapacity * FLOWS];
+                System.arraycopy(cents.get(k), 0, c, shift, cents.get(k).length);
+                System.arraycopy(counts.get(k), 0, n, shift, counts.get(k).length);
+                cents.set(k, c);
+                counts.set(k, n);
+            }
+            base = newBase;
+            capacity = newCapacity;
+        }
+
+        /** Add key {@code otherKey} of {@code other} into key {@code key} of this cube */
+        void addAll(int key, DayCube other, int otherKey) {
+            if (!other.isEmpty()) {
+                minDay = Math.min(minDay, other.minDay);
+                maxDay = Math.max(maxDay, other.maxDay);
+                long[] oc = other.cents.get(otherKey);
+                int[] on = other.counts.get(otherKey);
+                long lo = Math.max(other.minDay, other.base);
+                long hi = Math.min(other.maxDay, other.base + other.capacity - 1);
+                for (long d = lo; d <= hi; d++) {
+                    int i = (int) (d - other.base) * FLOWS;
+                    int slot = Integer.MIN_VALUE;
+                    for (int f = 0; f < FLOWS; f++) {
+                        if (on[i + f] == 0) continue;
+                        if (slot == Integer.MIN_VALUE) slot = slot(d);
+                        add(key, slot, d, f, oc[i + f], on[i + f]);
+                    }
+                }
+                for (Map.Entry<Long, long[]> e : other.sparse.get(otherKey).entrySet()) {
+                    int slot = slot(e.getKey());
+                    for (int f = 0; f < FLOWS; f++) {
+                        if (e.getValue()[FLOWS + f] != 0) {
+                            add(key, slot, e.getKey(), f, e.getValue()[f], (int) e.getValue()[FLOWS + f]);
+                        }
+                    }
+                }
+            }
+            for (int f = 0; f < FLOWS; f++) {
+                undatedCents.get(key)[f] += other.undatedCents.get(otherKey)[f];
+                undatedCounts.get(key)[f] += other.undatedCounts.get(otherKey)[f];
+            }
+        }
+
+        void add(int key, int slot, long day, int flow, long amountCents) {
+            if (slot == UNDATED) {
+                if (key == 0) undatedRows++;
+                undatedCents.get(key)[flow] += amountCents;
+                undatedCounts.get(key)[flow]++;
+                return;
+            }
+            add(key, slot, day, flow, amountCents, 1);
+        }
+
+        private void add(int key, int slot, long day, int flow, long amountCents, int rows) {
+            if (slot == SPARSE) {
+                long[] cell = sparse.get(key).computeIfAbsent(day, d -> new long[FLOWS * 2]);
+                cell[flow] += amountCents;
+                cell[FLOWS + flow] += rows;
+                return;
+            }
+            int i = slot * FLOWS + flow;
+            cents.get(key)[i] += amountCents;
+            counts.get(key)[i] += rows;
+        }
+
+        /** Every dense day and every sparse day of key 0 within {@code fromDay..toDay} */
+        void forEachDay(long fromDay, long toDay, LongConsumer action) {
+            if (fromDay > toDay) return;
+            if (capacity > 0) {
+                long lo = Math.max(fromDay, Math.max(base, minDay));
+                long hi = Math.min(toDay, Math.min(base + capacity - 1, maxDay));
+                for (long d = lo; d <= hi; d++) action.accept(d);
+            }
+            for (long d : sparse.get(0).subMap(fromDay, true, toDay, true).keySet()) action.accept(d);
+        }
+
+        Totals sum(int key, long fromDay, long toDay, boolean withUndated) {
+            long[] c = new long[FLOWS];
+            int[] n = new int[FLOWS];
+            accumulate(key, fromDay, toDay, withUndated, c, n);
+            return Totals.of(c, n);
+        }
+
+        Totals sumFlow(int key, int flow, long fromDay, long toDay, boolean withUndated) {
+            long[] c = new long[FLOWS];
+            int[] n = new int[FLOWS];
+            accumulate(key, fromDay, toDay, withUndated, c, n);
+            if (flow == INCOME) return new Totals(c[flow], 0, 0, n[flow], 0, 0);
+            if (flow == EXPENSE) return new Totals(0, c[flow], 0, 0, n[flow], 0);
+            return new Totals(0, 0, c[flow], 0, 0, n[flow]);
+        }
+
+        private void accumulate(int key, long fromDay, long toDay, boolean withUndated, long[] c, int[] n) {
+            if (capacity > 0) {
+                long lo = Math.max(fromDay, base);
+                long hi = Math.min(toDay, base + capacity - 1);
+                long[] kc = cents.get(key);
+                int[] kn = counts.get(key);
+                for (long d = lo; d <= hi; d++) {
+                    int i = (int) (d - base) * FLOWS;
+                    for (int f = 0; f < FLOWS; f++) {
+                        c[f] += kc[i + f];
+                        n[f] += kn[i + f];
+                    }
+                }
+            }
+            if (fromDay <= toDay) {
+                for (long[] cell : sparse.get(key).subMap(fromDay, true, toDay, true).values()) {
+                    for (int f = 0; f < FLOWS; f++) {
+                        c[f] += cell[f];
+                        n[f] += (int) cell[FLOWS + f];
+                    }
+                }
+            }
+            if (withUndated) {
+                for (int f = 0; f < FLOWS; f++) {
+                    c[f] += undatedCents.get(key)[f];
+                    n[f] += undatedCounts.get(key)[f];
+                }
+            }
+        }
+    }
+}
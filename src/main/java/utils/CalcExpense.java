@@ -1,46 +1,42 @@
 package utils;
 
+import pojo.Category;
+import pojo.IncExp;
+import pojo.Money;
 import pojo.Transaction;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class CalcExpense {
 
-    // Date format matches transactionTime format in JSON
-    private static final DateTimeFormatter DATE_TIME_FORMATTER =
-            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
     /**
      * Summarize total income and expense within the first 7 and 30 days
      * starting from the earliest transaction date (billing start date).
+     * Keys are the raw income/expense labels as they appear in the ledger.
      */
     public static Map<String, Map<String, Double>> summarizeByBillingCycle(List<Transaction> transactions) {
-        // 1. Get the billing start date (earliest transaction date)
-        Optional<LocalDate> startDateOpt = transactions.stream()
-                .map(t -> parseTransactionDate(t.getTransactionTime()))
-                .min(Comparator.naturalOrder());
-
-        if (startDateOpt.isEmpty()) {
-            return Map.of(); // Return empty if no transaction data
+        AggregationEngine.Result r = AggregationEngine.aggregate(transactions,
+                List.of(AggregationEngine.Window.firstDays("7Days", 7), AggregationEngine.Window.firstDays("30Days", 30)),
+                EnumSet.of(AggregationEngine.GroupBy.INC_EXP));
+        if (r.start() == null) {
+            return Map.of(); // Return empty if no dated transaction data
         }
 
-        LocalDate startDate = startDateOpt.get();
-        LocalDate endDate7Days = startDate.plusDays(6);   // 7-day window (inclusive)
-        LocalDate endDate30Days = startDate.plusDays(29); // 30-day window (inclusive)
-
-        // 2. Calculate total amounts within 7-day and 30-day ranges
-        Map<String, Double> stats7Days = filterAndSum(transactions, startDate, endDate7Days);
-        Map<String, Double> stats30Days = filterAndSum(transactions, startDate, endDate30Days);
-
+        // The engine groups by IncExp; report each flow under its first raw spelling
         return Map.of(
-                "7Days", stats7Days,
-                "30Days", stats30Days
+                "7Days", byRawLabel(r.window("7Days"), r.incExpLabels()),
+                "30Days", byRawLabel(r.window("30Days"), r.incExpLabels())
         );
     }
 
+    private static Map<String, Double> byRawLabel(AggregationEngine.WindowResult w, Map<IncExp, String> labels) {
+        Map<String, Double> out = new HashMap<>();
+        w.byIncExp().forEach((flow, totals) -> {
+            String label = labels.get(flow);
+            if (label != null) out.put(label, Money.yuan(totals.amountCents()));
+        });
+        return out;
+    }
+
     /**
      * Summarize expense amount and proportion by transaction type
      * @return Map structure:
@@ -50,70 +46,126 @@ public class CalcExpense {
      *             "Shopping Amount": 1500.00,
      *             "Shopping Percentage": "75.00%"
      *         }
+     * @see #summarize(List) for the typed result
      */
     public static Map<String, Object> summarizeExpenseByCategory(List<Transaction> transactions) {
-        // 1. Filter expense records and group by transaction type
-        Map<String, Double> expenseByType = transactions.stream()
-                .filter(t -> "\"支出\"".equals(t.getIncExp()))
-                .collect(Collectors.groupingBy(
-                        Transaction::getTransactionType,
-                        Collectors.summingDouble(Transaction::getAmount)
-                ));
-
-        // 2. Calculate total expense amount
-        double totalExpense = expenseByType.values().stream()
-                .mapToDouble(Double::doubleValue)
-                .sum();
-
-        // 3. Construct result with amount and percentage
+        AggregationEngine.WindowResult all = AggregationEngine.aggregate(transactions,
+                List.of(AggregationEngine.Window.all("all")), EnumSet.of(AggregationEngine.GroupBy.CATEGORY)).window("all");
+
         Map<String, Object> result = new HashMap<>();
-        expenseByType.forEach((type, amount) -> {
-            // Format amount to 2 decimal places
-            result.put(type + " Amount", String.format("%.2f", amount));
-
-            // Calculate percentage (avoid division by zero)
-            if (totalExpense != 0) {
-                double percentage = (amount / totalExpense) * 100;
-                result.put(type + " Percentage", String.format("%.2f%%", percentage));
-            } else {
-                result.put(type + " Percentage", "0.00%");
-            }
+        all.byCategory().forEach((category, totals) -> {
+            if (totals.expenseCount() == 0 || category == Category.UNKNOWN) return;
+            result.put(category.label() + " Amount", Money.format(totals.expenseCents()));
+            result.put(category.label() + " Percentage", String.format("%.2f%%", all.expenseShare(category)));
         });
 
+        // Types outside the enum all land in UNKNOWN; report them under their own labels as before
+        long total = all.total().expenseCents();
+        all.byOtherType().forEach((type, totals) -> {
+            if (totals.expenseCount() > 0) putExpense(result, type, totals.expenseCents(), total);
+        });
         return result;
     }
 
+    private static void putExpense(Map<String, Object> result, String label, long cents, long total) {
+        result.put(label + " Amount", Money.format(cents));
+        result.put(label + " Percentage", total != 0 ? String.format("%.2f%%", cents * 100.0 / total) : "0.00%");
+    }
+
     /**
-     * Filter transactions within a date range and summarize by income/expense
+     * Typed billing-cycle summary in one scan: windows "7Days" and "30Days" counted from the
+     * earliest transaction plus "all", each broken down by income/expense and category.
      */
-    private static Map<String, Double> filterAndSum(List<Transaction> transactions,
-                                                    LocalDate startDate,
-                                                    LocalDate endDate) {
-        return transactions.stream()
-                .filter(t -> isWithinRange(t, startDate, endDate))
-                .collect(Collectors.groupingBy(
-                        Transaction::getIncExp,
-                        Collectors.summingDouble(Transaction::getAmount)
-                ));
+    public static AggregationEngine.Result summarize(List<Transaction> transactions) {
+        return AggregationEngine.aggregate(transactions,
+                List.of(AggregationEngine.Window.firstDays("7Days", 7),
+                        AggregationEngine.Window.firstDays("30Days", 30),
+                        AggregationEngine.Window.all("all")),
+                EnumSet.of(AggregationEngine.GroupBy.INC_EXP, AggregationEngine.GroupBy.CATEGORY));
     }
 
+    /* ---------------- Columnar Scans ---------------- */
+
     /**
-     * Parse transaction date (ignoring time part)
+     * Same result as {@link #summarizeByBillingCycle(List)}, scanned straight from the columns
+     * of a memory-mapped ledger without creating Transaction objects.
      */
-    private static LocalDate parseTransactionDate(String transactionTime) {
-        try {
-            return LocalDateTime.parse(transactionTime, DATE_TIME_FORMATTER).toLocalDate();
-        } catch (Exception e) {
-            System.err.println("Date parsing failed: " + transactionTime);
-            return LocalDate.MAX; // Use max date to avoid affecting min() calculation
+    public static Map<String, Map<String, Double>> summarizeByBillingCycle(ColumnarLedger ledger) {
+        int n = ledger.size();
+        long start = Long.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            long t = ledger.epochSecond(i);
+            if (t != ColumnarLedger.NO_TIME) start = Math.min(start, t);
+        }
+        if (start == Long.MAX_VALUE) return Map.of();
+
+        // Windows are whole days counted from the first transaction's date
+        long day0 = Math.floorDiv(start, 86400L);
+        List<String> incExp = ledger.dictionary(ColumnarLedger.Dict.INC_EXP);
+        long[] cents7 = new long[incExp.size()];
+        long[] cents30 = new long[incExp.size()];
+        boolean[] seen7 = new boolean[incExp.size()];
+        boolean[] seen30 = new boolean[incExp.size()];
+
+        for (int i = 0; i < n; i++) {
+            long t = ledger.epochSecond(i);
+            int c = ledger.code(ColumnarLedger.Dict.INC_EXP, i);
+            if (t == ColumnarLedger.NO_TIME || c < 0) continue;
+            long day = Math.floorDiv(t, 86400L) - day0;
+            if (day < 30) {
+                cents30[c] += ledger.amountCents(i);
+                seen30[c] = true;
+                if (day < 7) {
+                    cents7[c] += ledger.amountCents(i);
+                    seen7[c] = true;
+                }
+            }
         }
+        return Map.of("7Days", toAmounts(incExp, cents7, seen7), "30Days", toAmounts(incExp, cents30, seen30));
     }
 
     /**
-     * Check if a transaction falls within the specified date range
+     * Column-scan counterpart of {@link #summarizeExpenseByCategory(List)} over a memory-mapped
+     * ledger. Each type dictionary code is resolved to its report label once, then each row adds
+     * into one primitive accumulator per code.
      */
-    private static boolean isWithinRange(Transaction t, LocalDate start, LocalDate end) {
-        LocalDate date = parseTransactionDate(t.getTransactionTime());
-        return !date.isBefore(start) && !date.isAfter(end);
+    public static Map<String, Object> summarizeExpenseByCategory(ColumnarLedger ledger) {
+        List<String> flows = ledger.dictionary(ColumnarLedger.Dict.INC_EXP);
+        boolean[] isExpense = new boolean[flows.size()];
+        for (int c = 0; c < isExpense.length; c++) isExpense[c] = IncExp.of(flows.get(c)) == IncExp.EXPENSE;
+        List<String> types = ledger.dictionary(ColumnarLedger.Dict.TRANSACTION_TYPE);
+
+        // Slot 0 holds rows without a type, slot code + 1 each dictionary entry
+        long[] cents = new long[types.size() + 1];
+        boolean[] seen = new boolean[types.size() + 1];
+        long total = 0;
+        for (int i = 0, n = ledger.size(); i < n; i++) {
+            int flow = ledger.code(ColumnarLedger.Dict.INC_EXP, i);
+            if (flow < 0 || !isExpense[flow]) continue;
+            int slot = ledger.code(ColumnarLedger.Dict.TRANSACTION_TYPE, i) + 1;
+            cents[slot] += ledger.amountCents(i);
+            seen[slot] = true;
+            total += ledger.amountCents(i);
+        }
+
+        // Several spellings can share a label, e.g. "Shopping" and "\"shopping\""
+        Map<String, Long> byLabel = new HashMap<>();
+        for (int slot = 0; slot < cents.length; slot++) {
+            if (!seen[slot]) continue;
+            String label = slot == 0 ? Category.UNKNOWN.label() : AggregationEngine.typeLabel(types.get(slot - 1));
+            byLabel.merge(label, cents[slot], Long::sum);
+        }
+        Map<String, Object> result = new HashMap<>();
+        long sum = total;
+        byLabel.forEach((label, v) -> putExpense(result, label, v, sum));
+        return result;
+    }
+
+    private static Map<String, Double> toAmounts(List<String> keys, long[] cents, boolean[] seen) {
+        Map<String, Double> out = new HashMap<>();
+        for (int c = 0; c < keys.size(); c++) {
+            if (seen[c]) out.put(keys.get(c), Money.yuan(cents[c]));
+        }
+        return out;
     }
 }
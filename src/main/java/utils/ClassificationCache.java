@@ -0,0 +1,144 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * On-disk cache of classification results keyed by a normalized fingerprint of
+ * counterparty + item + transactionType, so recurring merchants skip the API.
+ * <p>
+ * Entries are kept in LRU order, capped at {@code maxEntries} and expire after {@code ttl}.
+ * The file ({@code ~/.deepseek_classification_cache.json}) is a JSON object of
+ * {@code fingerprint → {"c": category, "t": storedAtMillis}} in LRU order; it is loaded on first
+ * use and written back by {@link #save()}.
+ */
+public class ClassificationCache {
+
+    /** Point-in-time counters */
+    public record Stats(long hits, long misses, long evictions, int size) {
+
+        public double hitRate() {
+            return hits + misses == 0 ? 0 : hits * 1.0 / (hits + misses);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d hits, %d misses (%.1f%% hit rate), %d evicted, %d entries",
+                    hits, misses, hitRate() * 100, evictions, size);
+        }
+    }
+
+    private record Entry(String category, long storedAt) {}
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final Path file;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Clock clock;
+    private LinkedHashMap<String, Entry> entries;
+    private boolean dirty;
+    private long hits, misses, evictions;
+
+    public ClassificationCache(Path file, int maxEntries, Duration ttl, Clock clock) {
+        this.file = file;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Normalized key: lower case, whitespace collapsed, and runs of 4+ digits (order numbers,
+     * dates, phone numbers embedded in item names) replaced so they do not defeat the cache.
+     */
+    public static String fingerprint(String counterparty, String item, String transactionType) {
+        return norm(counterparty) + '|' + norm(item) + '|' + norm(transactionType);
+    }
+
+    /** Fingerprint of a transaction's JSON form */
+    public static String fingerprint(JsonNode tx) {
+        return fingerprint(tx.path("counterparty").asText(""), tx.path("item").asText(""),
+                tx.path("transactionType").asText(""));
+    }
+
+    private static String norm(String s) {
+        if (s == null) return "";
+        return s.replace("\"", "").toLowerCase().replaceAll("\\d{4,}", "#").replaceAll("\\s+", " ").trim();
+    }
+
+    /**
+     * Cached category, or null on a miss or an expired entry. A hit moves the entry to the
+     * most-recent end, so it also marks the cache dirty and the saved order keeps up.
+     */
+    public synchronized String get(String fingerprint) {
+        Entry e = entries().get(fingerprint);
+        if (e != null && clock.millis() - e.storedAt() > ttlMillis) {
+            entries.remove(fingerprint);
+            evictions++;
+            dirty = true;
+            e = null;
+        }
+        if (e == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        dirty = true;
+        return e.category();
+    }
+
+    public synchronized void put(String fingerprint, String category) {
+        entries().put(fingerprint, new Entry(category, clock.millis()));
+        dirty = true;
+        Iterator<String> lru = entries.keySet().iterator();
+        while (entries.size() > maxEntries && lru.hasNext()) {
+            lru.next();
+            lru.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries().size());
+    }
+
+    /** Write the cache back if it changed since it was loaded or last saved */
+    public synchronized void save() {
+        if (!dirty) return;
+        ObjectNode root = mapper.createObjectNode();
+        entries.forEach((k, e) -> root.putObject(k).put("c", e.category()).put("t", e.storedAt()));
+        try {
+            AtomicFiles.write(file, out -> mapper.writeValue(out, root));
+            dirty = false;
+        } catch (IOException e) {
+            System.err.println("Failed to save classification cache: " + e.getMessage());
+        }
+    }
+
+    private LinkedHashMap<String, Entry> entries() {
+        if (entries != null) return entries;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        if (Files.exists(file)) {
+            try {
+                Iterator<Map.Entry<String, JsonNode>> it = mapper.readTree(file.toFile()).fields();
+                while (it.hasNext()) {
+                    Map.Entry<String, JsonNode> e = it.next();
+                    entries.put(e.getKey(), new Entry(e.getValue().path("c").asText(), e.getValue().path("t").asLong()));
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to load classification cache: " + e.getMessage());
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,226 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs API calls for classification under three controls:
+ * <ul>
+ *   <li>a token-bucket rate limiter ({@code ratePerSecond}, bursts up to {@code burst});</li>
+ *   <li>exponential backoff with full jitter on HTTP 429, 5xx and timeouts, honouring
+ *       {@code Retry-After} when the server sends one;</li>
+ *   <li>AIMD concurrency: the in-flight limit grows by about one per window of successful calls
+ *       and halves on every throttled or failed attempt.</li>
+ * </ul>
+ * Submitted jobs queue until the limit admits them, so the executor never holds more than
+ * {@code maxConcurrency} running attempts however many rows an import submits.
+ * Counters for in-flight calls, the current limit, throughput and retries are exposed via {@link #stats()}.
+ */
+public class ClassificationScheduler {
+
+    /** A call that may be retried */
+    @FunctionalInterface
+    public interface Job<T> {
+        T call() throws IOException;
+    }
+
+    /** Point-in-time counters; throughput is completed calls per second of busy time */
+    public record Stats(int inFlight, int concurrencyLimit, long completed, long retries,
+                        long throttled, long failed, double throughputPerSecond) {
+
+        @Override
+        public String toString() {
+            return String.format("%d in flight (limit %d), %d completed, %d retries, %d throttled, %d failed, %.1f calls/s",
+                    inFlight, concurrencyLimit, completed, retries, throttled, failed, throughputPerSecond);
+        }
+    }
+
+    private final double ratePerSecond;
+    private final int burst;
+    private final int maxConcurrency;
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final ExecutorService executor;
+
+    // Never a monitor: on JDK 21-23 a virtual thread blocked inside synchronized pins its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Token bucket, guarded by lock
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    // Admission queue, AIMD limit and busy-time accounting, guarded by lock
+    private final Deque<Runnable> pending = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long busySince;
+    private long busyNanos;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public ClassificationScheduler(double ratePerSecond, int burst, int initialConcurrency, int maxConcurrency,
+                                   int maxRetries, long baseBackoffMillis, long maxBackoffMillis) {
+        this(ratePerSecond, burst, initialConcurrency, maxConcurrency, maxRetries, baseBackoffMillis, maxBackoffMillis,
+                IoExecutors.newExecutor("classify-"));
+    }
+
+    /** Same, running calls on {@code executor} (virtual or platform threads, see {@link IoExecutors}) */
+    public ClassificationScheduler(double ratePerSecond, int burst, int initialConcurrency, int maxConcurrency,
+                                   int maxRetries, long baseBackoffMillis, long maxBackoffMillis, ExecutorService executor) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.tokens = burst;
+        this.limit = initialConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.maxRetries = maxRetries;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.executor = executor;
+    }
+
+    /**
+     * Run {@code job} with rate limiting, adaptive concurrency and retries. Jobs wait in a queue
+     * until the concurrency limit admits them, so only admitted attempts occupy an executor
+     * thread; retries wait out their backoff off-thread and rejoin at the head of the queue.
+     */
+    public <T> CompletableFuture<T> submit(Job<T> job) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        enqueue(() -> attempt(job, future, 0), false);
+        return future;
+    }
+
+    private void enqueue(Runnable attempt, boolean retry) {
+        lock.lock();
+        try {
+            if (retry) pending.addFirst(attempt);
+            else pending.addLast(attempt);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Start queued attempts while the limit allows; caller holds the lock */
+    private void dispatch() {
+        while (inFlight < (int) limit && !pending.isEmpty()) {
+            if (inFlight++ == 0) busySince = System.nanoTime();
+            executor.execute(pending.pollFirst());
+        }
+    }
+
+    /** One admitted attempt; holds a slot until the call returns */
+    private <T> void attempt(Job<T> job, CompletableFuture<T> future, int attempt) {
+        long retryAfter;
+        try {
+            takeToken();
+            T result = job.call();
+            releaseSlot(true);
+            completed.incrementAndGet();
+            future.complete(result);
+            return;
+        } catch (IOException e) {
+            releaseSlot(false);
+            if (!isRetryable(e) || attempt >= maxRetries) {
+                failed.incrementAndGet();
+                future.completeExceptionally(e);
+                return;
+            }
+            if (e instanceof HttpStatusException h && h.code() == 429) throttled.incrementAndGet();
+            retryAfter = e instanceof HttpStatusException h ? h.retryAfterMillis() : -1;
+        } catch (InterruptedException e) {
+            releaseSlot(false);
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return;
+        } catch (RuntimeException e) {
+            releaseSlot(false);
+            failed.incrementAndGet();
+            future.completeExceptionally(e);
+            return;
+        }
+        retries.incrementAndGet();
+        long delay = retryAfter >= 0 ? Math.min(retryAfter, maxBackoffMillis) : backoff(attempt);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                .execute(() -> enqueue(() -> attempt(job, future, attempt + 1), true));
+    }
+
+    static boolean isRetryable(IOException e) {
+        if (e instanceof HttpStatusException h) return h.code() == 429 || h.code() >= 500;
+        return e instanceof InterruptedIOException; // socket / call timeouts
+    }
+
+    /** Full jitter: uniform in [0, min(max, base·2^attempt)] */
+    long backoff(int attempt) {
+        long cap = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private void releaseSlot(boolean ok) {
+        lock.lock();
+        try {
+            if (--inFlight == 0) busyNanos += System.nanoTime() - busySince;
+            // Additive increase spread over a window of `limit` calls; multiplicative decrease
+            limit = ok ? Math.min(maxConcurrency, limit + 1 / limit) : Math.max(1, limit / 2);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void takeToken() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                tokens = Math.min(burst, tokens + (now - lastRefill) / 1e9 * ratePerSecond);
+                lastRefill = now;
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                waitNanos = (long) ((1 - tokens) / ratePerSecond * 1e9);
+            } finally {
+                lock.unlock();
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            long busy = busyNanos + (inFlight > 0 ? System.nanoTime() - busySince : 0);
+            return new Stats(inFlight, (int) limit, completed.get(), retries.get(), throttled.get(), failed.get(),
+                    busy == 0 ? 0 : completed.get() / (busy / 1e9));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Non-2xx response from the API, with the server's Retry-After hint when present */
+    public static class HttpStatusException extends IOException {
+        private final int code;
+        private final long retryAfterMillis;
+
+        public HttpStatusException(int code, String body, long retryAfterMillis) {
+            super("HTTP " + code + ": " + body);
+            this.code = code;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public int code() { return code; }
+
+        /** Milliseconds from Retry-After, or -1 */
+        public long retryAfterMillis() { return retryAfterMillis; }
+    }
+}
@@ -0,0 +1,224 @@
+package utils;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pojo.Money;
+import pojo.Transaction;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Optional columnar, memory-mapped on-disk format for the ledger.
+ * <p>
+ * Layout (big-endian, one section after another):
+ * <pre>
+ *   int magic, int version, int rows
+ *   4 dictionaries   transactionType, incExp, paymentMethod, status: int n, n × (int len, UTF-8 bytes)
+ *   long[rows]       transaction time, epoch seconds of the wall-clock time (UTC offset)
+ *   long[rows]       amount in cents
+ *   4 × int[rows]    dictionary codes, -1 for null
+ *   5 string heaps   counterparty, item, transactionId, merchantId, note: int[rows + 1] offsets, UTF-8 bytes
+ * </pre>
+ * Aggregations read the primitive columns straight from the mapped buffer without creating
+ * {@link Transaction} objects; {@link #get(int)} materializes a single row when needed.
+ * Unparsable times are stored as {@link #NO_TIME} and heap strings do not distinguish null from "".
+ */
+public final class ColumnarLedger {
+
+    public static final long NO_TIME = Transaction.NO_TIME;
+
+    private static final int MAGIC = 0x54584331; // "TXC1"
+    private static final int VERSION = 1;
+    private static final DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /** Dictionary-encoded columns */
+    public enum Dict { TRANSACTION_TYPE, INC_EXP, PAYMENT_METHOD, STATUS }
+
+    /** String heap columns */
+    public enum Text { COUNTERPARTY, ITEM, TRANSACTION_ID, MERCHANT_ID, NOTE }
+
+    private final MappedByteBuffer buf;
+    private final int rows;
+    private final String[][] dictionaries = new String[Dict.values().length][];
+    private final int timeBase;
+    private final int centsBase;
+    private final int[] codeBase = new int[Dict.values().length];
+    private final int[] heapOffsetsBase = new int[Text.values().length];
+    private final int[] heapBytesBase = new int[Text.values().length];
+
+    private ColumnarLedger(MappedByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+            throw new IOException("Not a columnar ledger file");
+        }
+        rows = buf.getInt(8);
+
+        int pos = 12;
+        for (Dict d : Dict.values()) {
+            int n = buf.getInt(pos);
+            pos += 4;
+            String[] values = new String[n];
+            for (int i = 0; i < n; i++) {
+                int len = buf.getInt(pos);
+                values[i] = readUtf8(pos + 4, len);
+                pos += 4 + len;
+            }
+            dictionaries[d.ordinal()] = values;
+        }
+        timeBase = pos;
+        centsBase = timeBase + rows * 8;
+        pos = centsBase + rows * 8;
+        for (Dict d : Dict.values()) {
+            codeBase[d.ordinal()] = pos;
+            pos += rows * 4;
+        }
+        for (Text t : Text.values()) {
+            heapOffsetsBase[t.ordinal()] = pos;
+            heapBytesBase[t.ordinal()] = pos + (rows + 1) * 4;
+            pos = heapBytesBase[t.ordinal()] + buf.getInt(pos + rows * 4);
+        }
+    }
+
+    /** Map a columnar ledger file read-only */
+    public static ColumnarLedger open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ColumnarLedger(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    /* ---------------- Column Access ---------------- */
+
+    public int size() { return rows; }
+
+    public long epochSecond(int row) { return buf.getLong(timeBase + row * 8); }
+
+    public long amountCents(int row) { return buf.getLong(centsBase + row * 8); }
+
+    /** Dictionary code of a row, or -1 for null */
+    public int code(Dict column, int row) { return buf.getInt(codeBase[column.ordinal()] + row * 4); }
+
+    /** Distinct values of a dictionary column, indexed by code */
+    public List<String> dictionary(Dict column) {
+        return List.of(dictionaries[column.ordinal()]);
+    }
+
+    public String text(Text column, int row) {
+        int base = heapOffsetsBase[column.ordinal()] + row * 4;
+        int start = buf.getInt(base);
+        return readUtf8(heapBytesBase[column.ordinal()] + start, buf.getInt(base + 4) - start);
+    }
+
+    /** Materialize a single row */
+    public Transaction get(int row) {
+        Transaction tx = new Transaction();
+        long t = epochSecond(row);
+        tx.setTransactionTime(t == NO_TIME ? null : LocalDateTime.ofEpochSecond(t, 0, ZoneOffset.UTC).format(dtf));
+        tx.setTransactionType(decode(Dict.TRANSACTION_TYPE, row));
+        tx.setCounterparty(text(Text.COUNTERPARTY, row));
+        tx.setItem(text(Text.ITEM, row));
+        tx.setIncExp(decode(Dict.INC_EXP, row));
+        tx.setAmount(Money.yuan(amountCents(row)));
+        tx.setPaymentMethod(decode(Dict.PAYMENT_METHOD, row));
+        tx.setStatus(decode(Dict.STATUS, row));
+        tx.setTransactionId(text(Text.TRANSACTION_ID, row));
+        tx.setMerchantId(text(Text.MERCHANT_ID, row));
+        tx.setNote(text(Text.NOTE, row));
+        return tx;
+    }
+
+    public List<Transaction> toTransactions() {
+        List<Transaction> out = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) out.add(get(i));
+        return out;
+    }
+
+    private String decode(Dict column, int row) {
+        int c = code(column, row);
+        return c < 0 ? null : dictionaries[column.ordinal()][c];
+    }
+
+    private String readUtf8(int pos, int len) {
+        byte[] b = new byte[len];
+        buf.get(pos, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /* ---------------- Write ---------------- */
+
+    public static void write(List<Transaction> list, Path file) throws IOException {
+        int rows = list.size();
+        List<Map<String, Integer>> dicts = new ArrayList<>();
+        int[][] codes = new int[Dict.values().length][rows];
+        for (Dict d : Dict.values()) dicts.add(new LinkedHashMap<>());
+        for (int i = 0; i < rows; i++) {
+            Transaction t = list.get(i);
+            String[] values = {t.getTransactionType(), t.getIncExp(), t.getPaymentMethod(), t.getStatus()};
+            for (Dict d : Dict.values()) {
+                String v = values[d.ordinal()];
+                Map<String, Integer> dict = dicts.get(d.ordinal());
+                codes[d.ordinal()][i] = v == null ? -1 : dict.computeIfAbsent(v, k -> dict.size());
+            }
+        }
+
+        // Through a temp file and rename, so a crash mid-write never leaves a torn file to be mapped
+        AtomicFiles.write(file, body -> {
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows);
+            for (Map<String, Integer> dict : dicts) {
+                out.writeInt(dict.size());
+                for (String v : dict.keySet()) {
+                    byte[] b = v.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(b.length);
+                    out.write(b);
+                }
+            }
+            for (Transaction t : list) out.writeLong(t.getEpochSecond());
+            for (Transaction t : list) out.writeLong(t.getAmountCents());
+            for (int[] column : codes) for (int c : column) out.writeInt(c);
+            for (Text col : Text.values()) writeHeap(out, list, col);
+            out.flush();
+        });
+    }
+
+    private static void writeHeap(DataOutputStream out, List<Transaction> list, Text col) throws IOException {
+        ByteArrayOutputStream heap = new ByteArrayOutputStream();
+        out.writeInt(0);
+        for (Transaction t : list) {
+            String v = switch (col) {
+                case COUNTERPARTY -> t.getCounterparty();
+                case ITEM -> t.getItem();
+                case TRANSACTION_ID -> t.getTransactionId();
+                case MERCHANT_ID -> t.getMerchantId();
+                case NOTE -> t.getNote();
+            };
+            if (v != null) heap.write(v.getBytes(StandardCharsets.UTF_8));
+            out.writeInt(heap.size());
+        }
+        heap.writeTo(out);
+    }
+
+    /* ---------------- JSON Import / Export ---------------- */
+
+    /** Convert a JSON ledger (e.g. transactionData.json) into the columnar format */
+    public static void fromJson(Path json, Path columnar) throws IOException {
+        ObjectMapper mapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        write(Arrays.asList(mapper.readValue(json.toFile(), Transaction[].class)), columnar);
+    }
+
+    /** Write the columnar ledger back out in the existing JSON format */
+    public void toJson(Path json) {
+        JsonUtils.writeTransactionsToJson(toTransactions(), json.toString());
+    }
+}
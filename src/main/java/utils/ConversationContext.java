@@ -0,0 +1,117 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the messages sent for a chat turn from a session's full history, within a token budget.
+ * <p>
+ * The request is the system prompt, a financial-context message built from current data on every
+ * turn, the latest rolling summary (if any), then as many of the most recent user/assistant turns
+ * as fit. Turns that fall out of the window are folded into a new summary once they add up to
+ * {@code summarizeAfterTokens}.
+ * <p>
+ * The stored history stays append-only: a summary is appended as a message with role
+ * {@code "summary"} and an {@code upTo} index marking the history prefix it covers. System
+ * messages stored by older sessions (including their frozen financial context) are ignored.
+ */
+public final class ConversationContext {
+
+    static final String SUMMARY_ROLE = "summary";
+    /** Per-message overhead of the chat format (role, separators), in tokens */
+    static final int MESSAGE_OVERHEAD = 4;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /** Messages to send, and the history index of the oldest turn included */
+    public record Window(ArrayNode messages, int firstKept, int tokens) {}
+
+    private final int budgetTokens;
+    private final int summarizeAfterTokens;
+
+    public ConversationContext(int budgetTokens, int summarizeAfterTokens) {
+        this.budgetTokens = budgetTokens;
+        this.summarizeAfterTokens = summarizeAfterTokens;
+    }
+
+    /** Request messages for the current history, whose last entry is the new user message */
+    public Window window(ArrayNode history, String systemPrompt, String financialContext) {
+        ArrayNode out = mapper.createArrayNode();
+        out.addObject().put("role", "system").put("content", systemPrompt);
+        out.addObject().put("role", "system").put("content", financialContext);
+        JsonNode summary = latestSummary(history);
+        if (summary != null) {
+            out.addObject().put("role", "system")
+                    .put("content", "Summary of the earlier conversation: " + summary.path("content").asText());
+        }
+        int used = 0;
+        for (JsonNode m : out) used += tokens(m);
+
+        // Newest turns first, until the budget runs out; the newest one is always sent
+        int from = summary == null ? 0 : summary.path("upTo").asInt();
+        int firstKept = history.size();
+        for (int i = history.size() - 1; i >= from; i--) {
+            JsonNode m = history.get(i);
+            if (!isTurn(m)) continue;
+            int t = tokens(m);
+            if (firstKept < history.size() && used + t > budgetTokens) break;
+            used += t;
+            firstKept = i;
+        }
+        for (int i = firstKept; i < history.size(); i++) {
+            JsonNode m = history.get(i);
+            if (isTurn(m)) out.addObject().put("role", m.path("role").asText()).put("content", m.path("content").asText());
+        }
+        return new Window(out, firstKept, used);
+    }
+
+    /**
+     * Turns before the window that no summary covers yet, once they reach the summarization
+     * threshold; otherwise empty.
+     */
+    public List<JsonNode> evicted(ArrayNode history, Window window) {
+        JsonNode summary = latestSummary(history);
+        int from = summary == null ? 0 : summary.path("upTo").asInt();
+        List<JsonNode> out = new ArrayList<>();
+        int total = 0;
+        for (int i = from; i < window.firstKept(); i++) {
+            JsonNode m = history.get(i);
+            if (!isTurn(m)) continue;
+            out.add(m);
+            total += tokens(m);
+        }
+        return total >= summarizeAfterTokens ? out : List.of();
+    }
+
+    /** Text of the latest summary, or null */
+    public static String summaryText(ArrayNode history) {
+        JsonNode s = latestSummary(history);
+        return s == null ? null : s.path("content").asText();
+    }
+
+    /** History entry recording a summary of everything before {@code upTo} */
+    public static ObjectNode summaryMessage(String text, int upTo) {
+        return mapper.createObjectNode().put("role", SUMMARY_ROLE).put("content", text).put("upTo", upTo);
+    }
+
+    static int tokens(JsonNode message) {
+        return DeepSeek.estimateTokens(message.path("content").asText()) + MESSAGE_OVERHEAD;
+    }
+
+    private static boolean isTurn(JsonNode m) {
+        String role = m.path("role").asText();
+        return role.equals("user") || role.equals("assistant");
+    }
+
+    private static JsonNode latestSummary(ArrayNode history) {
+        for (int i = history.size() - 1; i >= 0; i--) {
+            if (SUMMARY_ROLE.equals(history.get(i).path("role").asText())) return history.get(i);
+        }
+        return null;
+    }
+}
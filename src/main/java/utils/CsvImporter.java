@@ -0,0 +1,213 @@
+package utils;
+
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import pojo.Transaction;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Parallel importer for Alipay / WeChat bill exports.
+ * <p>
+ * The file is memory-mapped and split into chunks that end on record boundaries (a newline
+ * outside quotes; neither {@code '"'} nor {@code '\n'} occurs inside a UTF-8 or GBK multi-byte
+ * character, so the split runs on raw bytes). Chunks are decoded and parsed on a fork-join pool
+ * and handed back in file order.
+ * <p>
+ * The charset comes from a pluggable {@link CharsetDetector}; the export format is recognized
+ * from the header row rather than the file name.
+ */
+public final class CsvImporter {
+
+    /** Picks the charset of a file from its first bytes */
+    @FunctionalInterface
+    public interface CharsetDetector {
+        Charset detect(ByteBuffer head);
+    }
+
+    /** UTF-8 when the file has a UTF-8 BOM or its head decodes as valid UTF-8, otherwise GBK */
+    public static final CharsetDetector BOM_UTF8_OR_GBK = head -> {
+        if (hasUtf8Bom(head)) return StandardCharsets.UTF_8;
+        CharsetDecoder dec = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer out = CharBuffer.allocate(head.remaining());
+        // endOfInput=false: a character cut off at the end of the sample is not an error
+        return dec.decode(head.duplicate(), out, false).isError() ? Charset.forName("GBK") : StandardCharsets.UTF_8;
+    };
+
+    public static final CsvImporter DEFAULT = new CsvImporter(BOM_UTF8_OR_GBK, 4 << 20);
+
+    private static final int SAMPLE_SIZE = 64 * 1024;
+    private static final int HEADER_SEARCH_LIMIT = 1 << 20;
+
+    /** Column layout of the supported exports, recognized from the header row */
+    enum Format {
+        /** 交易时间,交易分类,交易对方,对方账号,商品说明,收/支,金额,收/付款方式,交易状态,交易订单号,商家订单号,备注 */
+        ALIPAY(12, new int[]{0, 1, 2, 4, 5, 6, 7, 8, 9, 10, 11}),
+        /** 交易时间,交易类型,交易对方,商品,收/支,金额(元),支付方式,当前状态,交易单号,商户单号,备注 */
+        WECHAT(11, new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+
+        final int minColumns;
+        final int[] columns;
+
+        Format(int minColumns, int[] columns) {
+            this.minColumns = minColumns;
+            this.columns = columns;
+        }
+
+        static Format ofHeader(String header) {
+            return header.contains("对方账号") ? ALIPAY : WECHAT;
+        }
+    }
+
+    private final CharsetDetector detector;
+    private final int chunkSize;
+
+    public CsvImporter(CharsetDetector detector, int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive");
+        this.detector = detector;
+        this.chunkSize = chunkSize;
+    }
+
+    /** All transactions of the file in file order; empty when no header row is found */
+    public List<Transaction> parse(Path csv) throws IOException {
+        List<Transaction> all = new ArrayList<>();
+        forEachChunk(csv, all::addAll);
+        return all;
+    }
+
+    /**
+     * Parse the file chunk by chunk on the common fork-join pool, passing each chunk's rows to
+     * {@code sink} in file order as soon as it and all earlier chunks are done.
+     */
+    public void forEachChunk(Path csv, Consumer<List<Transaction>> sink) throws IOException {
+        try (FileChannel ch = FileChannel.open(csv, StandardOpenOption.READ)) {
+            long size = ch.size();
+            ByteBuffer sample = ch.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, SAMPLE_SIZE));
+            Charset charset = detector.detect(sample.asReadOnlyBuffer());
+            long start = hasUtf8Bom(sample) ? 3 : 0;
+
+            // Locate the header row; everything before it is the export's preamble
+            Format format = null;
+            ByteBuffer head = ch.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, HEADER_SEARCH_LIMIT));
+            while (start < head.limit()) {
+                int end = lineEnd(head, (int) start);
+                String line = decode(head, (int) start, end - (int) start, charset);
+                start = Math.min(end + 1, head.limit());
+                if (line.contains("交易时间") && line.contains("金额")) {
+                    format = Format.ofHeader(line);
+                    break;
+                }
+            }
+            if (format == null) return;
+
+            List<long[]> chunks = split(ch, start, size);
+            Format f = format;
+            List<CompletableFuture<List<Transaction>>> parsed = new ArrayList<>(chunks.size());
+            for (long[] c : chunks) {
+                ByteBuffer bytes = ch.map(FileChannel.MapMode.READ_ONLY, c[0], c[1] - c[0]);
+                parsed.add(CompletableFuture.supplyAsync(() -> parseChunk(bytes, charset, f), ForkJoinPool.commonPool()));
+            }
+            for (CompletableFuture<List<Transaction>> p : parsed) sink.accept(p.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw e;
+        }
+    }
+
+    /** [start, end) byte ranges of about chunkSize bytes, each ending on a record boundary */
+    private List<long[]> split(FileChannel ch, long from, long size) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long chunkStart = from;
+        long pos = from;
+        boolean quoted = false;
+        while (pos < size) {
+            long len = Math.min(Integer.MAX_VALUE, size - pos);
+            ByteBuffer window = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            for (int i = 0; i < len; i++) {
+                byte b = window.get(i);
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted && pos + i + 1 - chunkStart >= chunkSize) {
+                    chunks.add(new long[]{chunkStart, pos + i + 1});
+                    chunkStart = pos + i + 1;
+                }
+            }
+            pos += len;
+        }
+        if (chunkStart < size) chunks.add(new long[]{chunkStart, size});
+        return chunks;
+    }
+
+    private static List<Transaction> parseChunk(ByteBuffer bytes, Charset charset, Format format) {
+        List<Transaction> list = new ArrayList<>();
+        String text = decode(bytes, 0, bytes.limit(), charset);
+        try (CSVReader reader = new CSVReaderBuilder(new StringReader(text))
+                .withCSVParser(new CSVParserBuilder().withSeparator(',').build()).build()) {
+            String[] cols;
+            while ((cols = reader.readNext()) != null) {
+                if (cols.length < format.minColumns) continue;
+                int[] c = format.columns;
+                list.add(toTransaction(cols[c[0]], cols[c[1]], cols[c[2]], cols[c[3]], cols[c[4]], cols[c[5]],
+                        cols[c[6]], cols[c[7]], cols[c[8]], cols[c[9]], cols[c[10]]));
+            }
+        } catch (Exception e) {
+            throw new CompletionException(new IOException("Failed to parse CSV chunk: " + e.getMessage(), e));
+        }
+        return list;
+    }
+
+    private static Transaction toTransaction(String time, String type, String cp, String item,
+                                             String incExp, String amtStr, String pay,
+                                             String status, String txId, String mchId, String note) {
+        double amount = 0.0;
+        try {
+            amount = Double.parseDouble(amtStr.replace("¥", "").trim());
+        } catch (NumberFormatException ignored) {}
+
+        Transaction tx = new Transaction();
+        tx.setTransactionTime(time.trim());
+        tx.setTransactionType(type.trim());
+        tx.setCounterparty(cp.trim());
+        tx.setItem(item.trim());
+        tx.setIncExp(incExp.trim());
+        tx.setAmount(amount);
+        tx.setPaymentMethod(pay.trim());
+        tx.setStatus(status.trim());
+        tx.setTransactionId(StringUtil.cleanId(txId));
+        tx.setMerchantId(StringUtil.cleanId(mchId));
+        tx.setNote(note.trim());
+        return tx;
+    }
+
+    private static int lineEnd(ByteBuffer buf, int from) {
+        for (int i = from; i < buf.limit(); i++) {
+            if (buf.get(i) == '\n') return i;
+        }
+        return buf.limit();
+    }
+
+    private static String decode(ByteBuffer buf, int offset, int len, Charset charset) {
+        return charset.decode(buf.slice(offset, len)).toString();
+    }
+
+    private static boolean hasUtf8Bom(ByteBuffer head) {
+        return head.limit() >= 3 && (head.get(0) & 0xFF) == 0xEF
+                && (head.get(1) & 0xFF) == 0xBB && (head.get(2) & 0xFF) == 0xBF;
+    }
+}
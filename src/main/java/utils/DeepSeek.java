@@ -1,19 +1,23 @@
 package utils;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import okhttp3.*;
+import okio.BufferedSource;
+import pojo.Category;
 import pojo.Transaction;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.YearMonth;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
 
@@ -21,80 +25,76 @@ import java.util.prefs.Preferences;
 public class DeepSeek {
     private static final Logger logger = Logger.getLogger(DeepSeek.class.getName());
     private static final String API_URL = "https://api.deepseek.com/chat/completions";
+    /** System property overriding {@link #API_URL}, e.g. to point at a local mock server */
+    static final String API_URL_PROPERTY = "deepseek.api.url";
     private static final Preferences prefs = Preferences.userNodeForPackage(DeepSeek.class);
     private static final ObjectMapper mapper = new ObjectMapper();
 
     /* ---------------- Session Persistence ---------------- */
-    private static final File SESSION_FILE = new File(System.getProperty("user.home"), ".deepseek_sessions.json");
-    private static final Map<String, ArrayNode> SESSION_MAP = loadSessions();
-
-    private static Map<String, ArrayNode> loadSessions() {
-        if (!SESSION_FILE.exists()) return new ConcurrentHashMap<>();
-        try {
-            byte[] data = Files.readAllBytes(SESSION_FILE.toPath());
-            if (data.length == 0) return new ConcurrentHashMap<>();
-            Map<String, List<Map<String, String>>> raw = mapper.readValue(data, new TypeReference<>() {});
-            Map<String, ArrayNode> map = new ConcurrentHashMap<>();
-            raw.forEach((sid, list) -> map.put(sid, mapper.valueToTree(list)));
-            return map;
-        } catch (IOException e) {
-            logger.warning("Failed to load session file: " + e.getMessage());
-            return new ConcurrentHashMap<>();
-        }
-    }
-
-    private static void persistSessions() {
-        try {
-            Map<String, List<Map<String, String>>> out = new HashMap<>();
-            SESSION_MAP.forEach((sid, arr) -> {
-                List<Map<String, String>> lst = new ArrayList<>();
-                arr.forEach(n -> lst.add(Map.of("role", n.get("role").asText(), "content", n.get("content").asText())));
-                out.put(sid, lst);
-            });
-            mapper.writerWithDefaultPrettyPrinter().writeValue(SESSION_FILE, out);
-        } catch (IOException e) {
-            logger.warning("Failed to write session file: " + e.getMessage());
-        }
-    }
+    /** One append-only file per session under ~/.deepseek_sessions/, loaded on first use */
+    private static final SessionStore SESSIONS = new SessionStore(
+            new File(System.getProperty("user.home"), ".deepseek_sessions").toPath(),
+            new File(System.getProperty("user.home"), ".deepseek_sessions.json").toPath());
 
     /* ---------------- Core Chat Logic ---------------- */
     private static final String DEFAULT_SYS = "You are a helpful assistant";
 
     public static String chat(String sessionId, String userInput) {
+        return chatStream(sessionId, userInput, null);
+    }
+
+    /**
+     * Like {@link #chat}, but requests a streamed ({@code stream: true}) completion and passes each
+     * content delta to {@code onToken} as it arrives, on the calling thread. Returns the full reply,
+     * or an error message (which is not passed to {@code onToken}).
+     */
+    public static String chatStream(String sessionId, String userInput, Consumer<String> onToken) {
         String key = prefs.get("deepseek_api_key", "");
         if (key.isBlank())
             return "⚠️ DeepSeek API Key is not configured. Please enter it in the ⚙️ Settings.";
 
         try {
-            ArrayNode msgs = SESSION_MAP.computeIfAbsent(sessionId, k -> {
-                ArrayNode arr = mapper.createArrayNode();
-
-                // System prompt
-                ObjectNode sys = mapper.createObjectNode();
-                sys.put("role", "system");
-                sys.put("content", DEFAULT_SYS);
-                arr.add(sys);
-
-                // Financial context (only on first session creation)
-                ObjectNode ctx = mapper.createObjectNode();
-                ctx.put("role", "system");
-                ctx.put("content", buildFinancialContext());
-                arr.add(ctx);
-
-                return arr;
-            });
+            // New sessions start empty: the prompts are added per request by CONTEXT
+            ArrayNode msgs = SESSIONS.getOrCreate(sessionId, mapper::createArrayNode);
 
             ObjectNode user = mapper.createObjectNode();
             user.put("role", "user").put("content", userInput);
-            msgs.add(user);
+            ConversationContext.Window window;
+            synchronized (msgs) {
+                msgs.add(user);
+                window = CONTEXT.window(msgs, DEFAULT_SYS, buildFinancialContext());
+            }
 
-            String rsp = doCompletion(msgs, key);
+            String rsp;
+            try {
+                rsp = onToken == null ? doCompletion(window.messages(), key)
+                        : doCompletionStream(window.messages(), key, onToken);
+            } catch (IOException | RuntimeException e) {
+                synchronized (msgs) { // keep the history free of unanswered turns
+                    for (int i = msgs.size() - 1; i >= 0; i--) {
+                        if (msgs.get(i) == user) {
+                            msgs.remove(i);
+                            break;
+                        }
+                    }
+                }
+                throw e;
+            }
 
             ObjectNode asst = mapper.createObjectNode();
             asst.put("role", "assistant").put("content", rsp);
-            msgs.add(asst);
+            synchronized (msgs) {
+                msgs.add(asst);
+            }
+            SESSIONS.append(sessionId, user, asst);
 
-            persistSessions();
+            List<JsonNode> evicted;
+            synchronized (msgs) {
+                evicted = CONTEXT.evicted(msgs, window);
+            }
+            if (!evicted.isEmpty() && SUMMARIZING.add(sessionId)) {
+                IoExecutors.shared().execute(() -> summarize(sessionId, msgs, evicted, window.firstKept(), key));
+            }
             return rsp;
         } catch (Exception e) {
             logger.severe("DeepSeek API call failed: " + e.getMessage());
@@ -102,6 +102,46 @@ public class DeepSeek {
         }
     }
 
+    /* ---------------- Context Window ---------------- */
+    /** Token budget of one chat request (prompts, summary and recent turns) */
+    static final int CHAT_CONTEXT_TOKENS = Integer.getInteger("deepseek.chat.contextTokens", 4000);
+
+    private static final ConversationContext CONTEXT = new ConversationContext(CHAT_CONTEXT_TOKENS, CHAT_CONTEXT_TOKENS / 4);
+
+    /** Sessions with a summary call in flight */
+    private static final Set<String> SUMMARIZING = ConcurrentHashMap.newKeySet();
+
+    private static final String SUMMARY_PROMPT = "You maintain a running summary of a personal-finance conversation. "
+            + "Merge the previous summary with the new messages into one summary of at most 150 words. "
+            + "Keep figures, goals, decisions and open questions; drop small talk. Respond ONLY with the summary.";
+
+    /** Fold turns that left the window into the rolling summary, off the chat turn's critical path */
+    private static void summarize(String sessionId, ArrayNode msgs, List<JsonNode> evicted, int upTo, String key) {
+        try {
+            StringBuilder prompt = new StringBuilder();
+            String previous;
+            synchronized (msgs) {
+                previous = ConversationContext.summaryText(msgs);
+            }
+            if (previous != null) prompt.append("Previous summary:\n").append(previous).append("\n\n");
+            prompt.append("New messages:\n");
+            for (JsonNode m : evicted) {
+                prompt.append(m.path("role").asText()).append(": ").append(m.path("content").asText()).append('\n');
+            }
+            String summary = complete(SUMMARY_PROMPT, prompt.toString(), key).trim();
+            ObjectNode entry = ConversationContext.summaryMessage(summary, upTo);
+            synchronized (msgs) {
+                msgs.add(entry);
+            }
+            SESSIONS.append(sessionId, entry);
+        } catch (Exception e) {
+            // The turns stay in the history; the next turn retries
+            logger.warning("Conversation summary failed: " + e.getMessage());
+        } finally {
+            SUMMARIZING.remove(sessionId);
+        }
+    }
+
     /** Build context string using current financial data */
     private static String buildFinancialContext() {
         double totalAssets = FinanceContext.getTotalAssets();
@@ -110,10 +150,7 @@ public class DeepSeek {
 
         int year = DateContext.getYear();
         int month = DateContext.getMonth();
-        double spent = JsonUtils.getTransactionsByMonth(year, month)
-                .stream()
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+        double spent = JsonUtils.rollup().month(YearMonth.of(year, month)).amount();
 
         return String.format(
                 "User Profile:\n" +
@@ -126,35 +163,102 @@ public class DeepSeek {
         );
     }
 
-    private static String doCompletion(ArrayNode msgs, String key) throws IOException {
-        OkHttpClient client = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(60, TimeUnit.SECONDS)
-                .readTimeout(60, TimeUnit.SECONDS)
-                .build();
+    /* ---------------- HTTP Client ---------------- */
+    private static final HttpMetrics HTTP_METRICS = new HttpMetrics();
+
+    /**
+     * One long-lived client for all API calls: its pool keeps connections alive between calls, so
+     * parallel classification reuses warm TLS connections (multiplexed over HTTP/2 when the server
+     * offers it) instead of opening one per request.
+     */
+    private static final OkHttpClient HTTP = new OkHttpClient.Builder()
+            .connectTimeout(30, TimeUnit.SECONDS)
+            .writeTimeout(60, TimeUnit.SECONDS)
+            .readTimeout(60, TimeUnit.SECONDS)
+            .connectionPool(new ConnectionPool(10, 5, TimeUnit.MINUTES))
+            .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .eventListenerFactory(HTTP_METRICS.factory())
+            .build();
+
+    /** Connection reuse and handshake statistics of the shared client */
+    public static HttpMetrics.Stats httpStats() {
+        return HTTP_METRICS.snapshot();
+    }
+
+    /** Retry-After in delta-seconds form, or -1 */
+    private static long retryAfterMillis(String header) {
+        if (header == null) return -1;
+        try {
+            return Long.parseLong(header.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String apiUrl() {
+        return System.getProperty(API_URL_PROPERTY, API_URL);
+    }
 
+    static String doCompletion(ArrayNode msgs, String key) throws IOException {
         ObjectNode body = mapper.createObjectNode();
         body.put("model", "deepseek-chat").set("messages", msgs);
 
-        Request req = new Request.Builder().url(API_URL)
+        Request req = new Request.Builder().url(apiUrl())
                 .post(RequestBody.create(body.toString(), MediaType.parse("application/json")))
                 .addHeader("Authorization", "Bearer " + key)
                 .build();
 
-        try (Response resp = client.newCall(req).execute()) {
+        try (Response resp = HTTP.newCall(req).execute()) {
             if (!resp.isSuccessful())
-                throw new IOException("HTTP " + resp.code() + ": " + resp.body().string());
+                throw new ClassificationScheduler.HttpStatusException(resp.code(), resp.body().string(),
+                        retryAfterMillis(resp.header("Retry-After")));
 
             JsonNode root = mapper.readTree(resp.body().string());
             return root.path("choices").get(0).path("message").path("content").asText();
         }
     }
 
+    /** Streamed completion: reads the server-sent events, forwarding content deltas to {@code onToken} */
+    static String doCompletionStream(ArrayNode msgs, String key, Consumer<String> onToken) throws IOException {
+        ObjectNode body = mapper.createObjectNode();
+        body.put("model", "deepseek-chat").put("stream", true).set("messages", msgs);
+
+        Request req = new Request.Builder().url(apiUrl())
+                .post(RequestBody.create(body.toString(), MediaType.parse("application/json")))
+                .addHeader("Authorization", "Bearer " + key)
+                .addHeader("Accept", "text/event-stream")
+                .build();
+
+        try (Response resp = HTTP.newCall(req).execute()) {
+            if (!resp.isSuccessful())
+                throw new ClassificationScheduler.HttpStatusException(resp.code(), resp.body().string(),
+                        retryAfterMillis(resp.header("Retry-After")));
+            return readEvents(resp.body().source(), onToken);
+        }
+    }
+
+    /**
+     * Parse an SSE body of {@code data: {chunk}} lines terminated by {@code data: [DONE]}.
+     * Keep-alive comments and blank separator lines are skipped.
+     */
+    static String readEvents(BufferedSource source, Consumer<String> onToken) throws IOException {
+        StringBuilder reply = new StringBuilder();
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (!line.startsWith("data:")) continue;
+            String data = line.substring(5).trim();
+            if (data.equals("[DONE]")) break;
+            if (data.isEmpty()) continue;
+            String delta = mapper.readTree(data).path("choices").path(0).path("delta").path("content").asText("");
+            if (delta.isEmpty()) continue;
+            reply.append(delta);
+            onToken.accept(delta);
+        }
+        return reply.toString();
+    }
+
     /* ---------------- Classification Utilities ---------------- */
-    private static final List<String> ALLOWED = List.of(
-            "food and dining", "transportation", "housing", "entertainment", "shopping",
-            "healthcare", "education and training", "communication", "finance and investment", "transfer accounts"
-    );
+    private static final List<String> ALLOWED = Category.labels();
 
     private static String normalize(String raw) {
         String s = raw.toLowerCase().replaceAll("[^a-z ]", " ").replaceAll("\\s{2,}", " ").trim();
@@ -163,45 +267,231 @@ public class DeepSeek {
     }
 
     /**
-     * Parallel batch classification: updates memory and writes to file once
+     * In-memory batch classification: sets {@code transactionType} on each transaction directly.
+     * Rows sharing an id are classified once. Rows whose call failed (or that could not be sent
+     * for lack of an API key) keep the export's own type.
      */
-    public static void classifyBatchTransaction(String jsonPath, ProgressCallback cb) throws IOException, InterruptedException {
-        ObjectNode[] nodes = mapper.readValue(new File(jsonPath), ObjectNode[].class);
-        Map<String, ObjectNode> index = new ConcurrentHashMap<>();
-        for (ObjectNode n : nodes) {
-            String id = StringUtil.cleanId(n.path("transactionId").asText());
-            index.put(id, n);
+    public static void classifyTransactions(List<Transaction> txs, ProgressCallback cb) throws InterruptedException {
+        classifyTransactions(txs, prefs.get("deepseek_api_key", ""), cb);
+    }
+
+    static void classifyTransactions(List<Transaction> txs, String key, ProgressCallback cb) throws InterruptedException {
+        String[] keys = new String[txs.size()];
+        Map<String, JsonNode> index = new LinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = TransactionLog.keyOf(txs.get(i));
+            index.put(keys[i], mapper.valueToTree(txs.get(i)));
+        }
+        Map<String, String> types = classifyAll(index, key, cb);
+        for (int i = 0; i < keys.length; i++) {
+            String type = types.get(keys[i]);
+            if (type != null) txs.get(i).setTransactionType(type);
         }
+    }
+
+    /* ---------------- Batched Classification ---------------- */
+
+    /** Upper bound on rows per batched prompt; override with -Ddeepseek.classify.batchSize */
+    static final int BATCH_SIZE = Integer.getInteger("deepseek.classify.batchSize", 50);
+    /** Estimated prompt tokens per batch, leaving room in the context for the answer */
+    static final int BATCH_TOKEN_BUDGET = Integer.getInteger("deepseek.classify.batchTokens", 3000);
+
+    private static final String BATCH_PROMPT = "You classify bill items into exactly one of these categories: "
+            + String.join(", ", ALLOWED) + ". Each input line is a JSON object with an \"id\". "
+            + "Respond ONLY with one JSON object mapping every id to its category, e.g. {\"1\":\"shopping\"}.";
+
+    /** Results of earlier imports, keyed by counterparty/item/type fingerprint */
+    private static final ClassificationCache CACHE = new ClassificationCache(
+            new File(System.getProperty("user.home"), ".deepseek_classification_cache.json").toPath(),
+            20_000, Duration.ofDays(180), Clock.systemUTC());
+
+    public static ClassificationCache.Stats cacheStats() {
+        return CACHE.stats();
+    }
+
+    /** Rate limit, retries and adaptive concurrency for all classification calls */
+    private static final ClassificationScheduler SCHEDULER = new ClassificationScheduler(
+            Double.parseDouble(System.getProperty("deepseek.classify.ratePerSecond", "10")), 10,
+            4, 32, 5, 500, 30_000);
+
+    public static ClassificationScheduler.Stats schedulerStats() {
+        return SCHEDULER.stats();
+    }
+
+    /**
+     * Classify every node. The cache is consulted first and rows sharing a fingerprint are sent
+     * once; the rest are packed into batched prompts run by the scheduler, and rows a successful
+     * batch leaves unanswered fall back to one call each. A batch that fails after the scheduler's
+     * retries is not split up: its rows keep their export type. Returns id → category; ids whose
+     * call failed, or that were not sent because {@code key} is blank, are left out.
+     */
+    private static Map<String, String> classifyAll(Map<String, ? extends JsonNode> index, String key,
+                                                   ProgressCallback cb) throws InterruptedException {
+        Map<String, String> types = new ConcurrentHashMap<>();
         int total = index.size();
-        AtomicInteger done = new AtomicInteger();
-        ExecutorService pool = Executors.newFixedThreadPool(10);
-        CountDownLatch latch = new CountDownLatch(total);
+        if (total == 0) return types;
+
+        Map<String, List<String>> idsByFingerprint = new LinkedHashMap<>();
+        Map<String, JsonNode> uncached = new LinkedHashMap<>();
+        for (Map.Entry<String, ? extends JsonNode> e : index.entrySet()) {
+            String fp = ClassificationCache.fingerprint(e.getValue());
+            List<String> ids = idsByFingerprint.get(fp);
+            String hit = ids == null ? CACHE.get(fp) : null;
+            if (hit != null) {
+                types.put(e.getKey(), hit);
+                continue;
+            }
+            if (ids == null) idsByFingerprint.put(fp, ids = new ArrayList<>());
+            ids.add(e.getKey());
+            uncached.putIfAbsent(fp, e.getValue());
+        }
 
-        index.forEach((id, node) -> pool.submit(() -> {
-            try {
-                String cat = classifyInMemory(id, node);
-                node.put("transactionType", cat);
-            } finally {
-                cb.update(done.incrementAndGet() * 1.0 / total);
-                latch.countDown();
+        // Local fast path: history, rules and a model kept current with the ledger answer the confident rows
+        LocalClassifier local = JsonUtils.localClassifier();
+        int localRows = 0;
+        for (Iterator<Map.Entry<String, JsonNode>> it = uncached.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> e = it.next();
+            JsonNode n = e.getValue();
+            Category c = local.classify(n.path("counterparty").asText(null), n.path("item").asText(null),
+                    n.path("transactionType").asText(null));
+            if (c == null) continue;
+            for (String id : idsByFingerprint.get(e.getKey())) types.put(id, c.label());
+            localRows++;
+            it.remove();
+        }
+        AtomicInteger done = new AtomicInteger(types.size());
+        cb.update(done.get() * 1.0 / total);
+
+        List<List<Map.Entry<String, JsonNode>>> batches = packBatches(new ArrayList<>(uncached.entrySet()));
+        AtomicInteger fallbacks = new AtomicInteger();
+        List<CompletableFuture<Void>> work = new ArrayList<>();
+
+        for (List<Map.Entry<String, JsonNode>> batch : batches) {
+            // null marks a failed (or unsent) batch; its rows are not retried one by one
+            CompletableFuture<Map<String, String>> answered = key.isBlank()
+                    ? CompletableFuture.completedFuture(null)
+                    : SCHEDULER.submit(() -> classifyBatch(batch, key)).exceptionally(ex -> {
+                        logger.warning("Batched classification of " + batch.size() + " rows failed: " + ex.getMessage());
+                        return null;
+                    });
+            work.add(answered.thenCompose(ans -> {
+                List<CompletableFuture<Void>> rows = new ArrayList<>();
+                for (Map.Entry<String, JsonNode> e : batch) {
+                    // null marks a failed call: the row is left out of the result
+                    CompletableFuture<String> type;
+                    if (ans == null) {
+                        type = CompletableFuture.completedFuture(null);
+                    } else if (ans.containsKey(e.getKey())) {
+                        type = CompletableFuture.completedFuture(ans.get(e.getKey()));
+                    } else {
+                        fallbacks.incrementAndGet();
+                        type = SCHEDULER.submit(() -> classifySingle(e.getValue(), key)).exceptionally(ex -> null);
+                    }
+                    rows.add(type.thenAccept(t -> {
+                        if (t != null && !"unknown".equals(t)) CACHE.put(e.getKey(), t); // never cache a failure
+                        for (String id : idsByFingerprint.get(e.getKey())) {
+                            if (t != null) types.put(id, t);
+                            cb.update(done.incrementAndGet() * 1.0 / total);
+                        }
+                    }));
+                }
+                return CompletableFuture.allOf(rows.toArray(new CompletableFuture[0]));
+            }));
+        }
+        CompletableFuture.allOf(work.toArray(new CompletableFuture[0])).join();
+        CACHE.save();
+        logger.info("Classified " + total + " transactions: " + localRows + " distinct rows answered locally, "
+                + uncached.size() + " sent in " + batches.size()
+                + " batches, " + fallbacks.get() + " single-row fallbacks; cache " + CACHE.stats()
+                + "; scheduler " + SCHEDULER.stats() + "; HTTP " + httpStats());
+        return types;
+    }
+
+    /** Greedy packing by row count and estimated prompt tokens */
+    static <E extends Map.Entry<String, ? extends JsonNode>> List<List<E>> packBatches(List<E> rows) {
+        List<List<E>> batches = new ArrayList<>();
+        List<E> current = new ArrayList<>();
+        int tokens = estimateTokens(BATCH_PROMPT);
+        for (E row : rows) {
+            int rowTokens = estimateTokens(batchLine("0", row.getValue()));
+            if (!current.isEmpty() && (current.size() >= BATCH_SIZE || tokens + rowTokens > BATCH_TOKEN_BUDGET)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                tokens = estimateTokens(BATCH_PROMPT);
             }
-        }));
-        latch.await();
-        pool.shutdown();
-        mapper.writerWithDefaultPrettyPrinter().writeValue(new File(jsonPath), nodes);
+            current.add(row);
+            tokens += rowTokens;
+        }
+        if (!current.isEmpty()) batches.add(current);
+        return batches;
     }
 
-    private static String classifyInMemory(String id, JsonNode node) {
-        String prompt = "You are a helpful assistant that classifies bill items into categories "
-                + "(food and dining, transportation, housing, entertainment, shopping, healthcare, "
-                + "education and training, communication, finance and investment, transfer accounts). "
-                + "Respond ONLY with the category.";
-        return normalize(chat("classify_" + id, prompt + "\n" + node.toString()));
+    /**
+     * One completion for the whole batch. Rows are numbered 1..n in the prompt (shorter and less
+     * error-prone than echoing transaction ids); only rows the model answered are returned.
+     * Transport and HTTP errors are thrown so the scheduler can retry them.
+     */
+    static Map<String, String> classifyBatch(List<? extends Map.Entry<String, ? extends JsonNode>> batch, String key) throws IOException {
+        StringBuilder user = new StringBuilder();
+        for (int i = 0; i < batch.size(); i++) {
+            user.append(batchLine(String.valueOf(i + 1), batch.get(i).getValue())).append('\n');
+        }
+        Map<String, String> answered = new HashMap<>();
+        String rsp = complete(BATCH_PROMPT, user.toString(), key);
+        int start = rsp.indexOf('{'), end = rsp.lastIndexOf('}');
+        if (start < 0 || end < start) return answered;
+        try {
+            JsonNode root = mapper.readTree(rsp.substring(start, end + 1));
+            for (int i = 0; i < batch.size(); i++) {
+                JsonNode v = root.get(String.valueOf(i + 1));
+                if (v != null && v.isTextual()) answered.put(batch.get(i).getKey(), normalize(v.asText()));
+            }
+        } catch (IOException e) {
+            logger.warning("Unparsable batched classification answer: " + e.getMessage());
+        }
+        return answered;
+    }
+
+    /** The fields that matter for the category, as one compact JSON line */
+    private static String batchLine(String id, JsonNode node) {
+        ObjectNode line = mapper.createObjectNode().put("id", id);
+        for (String f : new String[]{"counterparty", "item", "transactionType", "incExp", "amount"}) {
+            JsonNode v = node.get(f);
+            if (v != null && !v.isNull()) line.set(f, v);
+        }
+        return line.toString();
+    }
+
+    /** Rough token count: one per CJK character, one per four other characters */
+    static int estimateTokens(String s) {
+        int cjk = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.UnicodeScript.of(s.charAt(i)) == Character.UnicodeScript.HAN) cjk++;
+        }
+        return cjk + (s.length() - cjk + 3) / 4;
+    }
+
+    private static final String SINGLE_PROMPT = "You are a helpful assistant that classifies bill items into categories "
+            + "(food and dining, transportation, housing, entertainment, shopping, healthcare, "
+            + "education and training, communication, finance and investment, transfer accounts). "
+            + "Respond ONLY with the category.";
+
+    /**
+     * One row, one stateless completion: no chat session, no financial context and nothing
+     * persisted, so classification cost does not grow with the ledger or the session file.
+     * Call errors are thrown so the scheduler can retry them.
+     */
+    static String classifySingle(JsonNode node, String key) throws IOException {
+        if (key.isBlank()) return "unknown";
+        return normalize(complete(SINGLE_PROMPT, node.toString(), key));
     }
 
-    /** Deprecated method kept for backward compatibility — calls internal version with empty callback */
-    public static void classifyBatchTransaction(String jsonPath) throws IOException, InterruptedException {
-        classifyBatchTransaction(jsonPath, p -> {});
+    /** A single system + user exchange outside any session */
+    static String complete(String system, String user, String key) throws IOException {
+        ArrayNode msgs = mapper.createArrayNode();
+        msgs.addObject().put("role", "system").put("content", system);
+        msgs.addObject().put("role", "user").put("content", user);
+        return doCompletion(msgs, key);
     }
 
     /** Progress callback interface */
@@ -0,0 +1,93 @@
+package utils;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection-level counters for a shared {@link okhttp3.OkHttpClient}, collected through an
+ * {@link EventListener}: how many connections were opened versus taken from the pool, and how
+ * long TLS handshakes took.
+ */
+public final class HttpMetrics {
+
+    /** Point-in-time copy of the counters */
+    public record Stats(long calls, long connectionsOpened, long connectionsReused,
+                        long handshakes, long handshakeNanos, long failedCalls) {
+
+        public double averageHandshakeMillis() {
+            return handshakes == 0 ? 0 : handshakeNanos / 1e6 / handshakes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d calls, %d connections opened, %d reused, %d handshakes (avg %.1f ms), %d failed",
+                    calls, connectionsOpened, connectionsReused, handshakes, averageHandshakeMillis(), failedCalls);
+        }
+    }
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong handshakes = new AtomicLong();
+    private final AtomicLong handshakeNanos = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /** One listener per call so the handshake start time is not shared between calls */
+    public EventListener.Factory factory() {
+        return call -> new EventListener() {
+            private long handshakeStart;
+
+            @Override
+            public void callStart(Call call) {
+                calls.incrementAndGet();
+            }
+
+            @Override
+            public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+                opened.incrementAndGet();
+            }
+
+            @Override
+            public void secureConnectStart(Call call) {
+                handshakeStart = System.nanoTime();
+            }
+
+            @Override
+            public void secureConnectEnd(Call call, Handshake handshake) {
+                handshakes.incrementAndGet();
+                handshakeNanos.addAndGet(System.nanoTime() - handshakeStart);
+            }
+
+            @Override
+            public void connectionAcquired(Call call, Connection connection) {
+                acquired.incrementAndGet();
+            }
+
+            @Override
+            public void connectFailed(Call call, InetSocketAddress address, Proxy proxy,
+                                      Protocol protocol, IOException e) {
+                // A failed attempt never reaches connectionAcquired; keep "reused" from going negative
+                opened.decrementAndGet();
+            }
+
+            @Override
+            public void callFailed(Call call, IOException e) {
+                failed.incrementAndGet();
+            }
+        };
+    }
+
+    public Stats snapshot() {
+        long open = opened.get();
+        return new Stats(calls.get(), open, Math.max(0, acquired.get() - open),
+                handshakes.get(), handshakeNanos.get(), failed.get());
+    }
+}
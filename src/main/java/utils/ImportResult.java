@@ -0,0 +1,22 @@
+package utils;
+
+/**
+ * Outcome of merging a batch of transactions into the ledger.
+ *
+ * @param inserted ids that were not in the ledger yet
+ * @param updated  ids whose incoming row was newer than the stored one
+ * @param skipped  rows identical to or older than what is stored, or repeated within the batch
+ */
+public record ImportResult(int inserted, int updated, int skipped) {
+
+    public static final ImportResult EMPTY = new ImportResult(0, 0, 0);
+
+    public ImportResult plus(ImportResult o) {
+        return new ImportResult(inserted + o.inserted, updated + o.updated, skipped + o.skipped);
+    }
+
+    @Override
+    public String toString() {
+        return inserted + " new, " + updated + " updated, " + skipped + " skipped";
+    }
+}
@@ -0,0 +1,70 @@
+package utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for blocking I/O (DeepSeek calls, imports started from the UI).
+ * <p>
+ * On a Java 21+ runtime every task gets its own virtual thread, so hundreds of concurrent HTTP
+ * calls park cheaply instead of holding hundreds of OS threads. On Java 17 (the default build
+ * target) or with {@code -Dio.virtualThreads=false} a cached pool of daemon platform threads is
+ * used. Virtual threads are looked up reflectively so the code still compiles for Java 17.
+ */
+public final class IoExecutors {
+
+    private static final boolean VIRTUAL = Boolean.parseBoolean(System.getProperty("io.virtualThreads", "true"))
+            && Runtime.version().feature() >= 21;
+
+    private static final ExecutorService SHARED = newExecutor("io-");
+
+    private IoExecutors() {
+    }
+
+    /** Whether executors created here run tasks on virtual threads */
+    public static boolean virtualThreads() {
+        return VIRTUAL;
+    }
+
+    /** Shared executor for one-off background work such as UI-triggered imports and chat turns */
+    public static ExecutorService shared() {
+        return SHARED;
+    }
+
+    /**
+     * A new executor whose threads are named {@code namePrefix + n}: one virtual thread per task,
+     * or an unbounded cached platform pool. Neither limits concurrency, so callers that can
+     * submit many tasks must bound admission themselves (as {@link ClassificationScheduler} does).
+     */
+    public static ExecutorService newExecutor(String namePrefix) {
+        return VIRTUAL ? newVirtualExecutor(namePrefix) : newPlatformExecutor(namePrefix);
+    }
+
+    /** Cached, unbounded pool of daemon platform threads, the pre-Java-21 behaviour */
+    public static ExecutorService newPlatformExecutor(String namePrefix) {
+        AtomicInteger n = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, namePrefix + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Equivalent of {@code Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 1).factory())} */
+    private static ExecutorService newVirtualExecutor(String namePrefix) {
+        try {
+            // Resolve methods on the public Thread.Builder interface, not the internal implementation
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            ThreadFactory tf = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, tf);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Virtual threads unavailable, using platform threads: " + e);
+            return newPlatformExecutor(namePrefix);
+        }
+    }
+}
@@ -2,21 +2,19 @@ package utils;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.*;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.opencsv.CSVParserBuilder;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
 import pojo.Transaction;
 
 import java.io.*;
-import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Unified JSON/CSV utility — includes CSV parsing, JSON merge/deduplication,
@@ -27,12 +25,12 @@ public class JsonUtils {
 
     /* ---------------- Global Objects & Constants ---------------- */
     private static final ObjectMapper objectMapper = new ObjectMapper();
-    private static final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-    private static final DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private static final String BASE_PATH = "src/main/resources/data";
-    private static final String DATA_JSON_PATH = BASE_PATH + "\\transactionData.json";
-    private static final String TEMP_JSON_PATH = BASE_PATH + "\\temp.json";
+    private static final String DATA_FILE = "transactionData.json";
+
+    /** One append-only log per ledger file, shared so appends and compaction are serialized */
+    private static final Map<Path, TransactionLog> LOGS = new ConcurrentHashMap<>();
 
     static {
         objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
@@ -44,10 +42,11 @@ public class JsonUtils {
         Path p = Paths.get(BASE_PATH, fileName);
         System.out.println("Reading " + p + " ...");
 
-        // 1️⃣ Try reading from disk if file exists
-        if (Files.exists(p)) {
-            try (InputStream in = Files.newInputStream(p)) {
-                return objectMapper.readValue(in, new TypeReference<List<Transaction>>() {});
+        // 1️⃣ Try reading from disk if file exists: snapshot + append-only log tail
+        TransactionLog log = ledgerLog(fileName);
+        if (Files.exists(p) || Files.exists(log.getLogPath())) {
+            try {
+                return log.readAll();
             } catch (IOException e) {
                 System.err.println("Failed to read " + p + ": " + e.getMessage());
                 return Collections.emptyList();
@@ -66,177 +65,156 @@ public class JsonUtils {
         return Collections.emptyList();
     }
 
-    private static List<Transaction> readJsonFile(String jsonPath) throws IOException {
-        File f = new File(jsonPath);
-        if (!f.exists()) return Collections.emptyList();
-        return objectMapper.readValue(f, new TypeReference<List<Transaction>>() {});
+    /* ---------------- JSON Streaming Read ---------------- */
+
+    /**
+     * Lazily stream the ledger, keeping only records accepted by {@code filter}.
+     * Records are bound one at a time from the parser, so memory follows the result, not the file.
+     * The stream holds the file open — use it in try-with-resources.
+     */
+    public static Stream<Transaction> streamTransactions(Predicate<? super Transaction> filter) throws IOException {
+        return streamTransactions(DATA_FILE, filter);
     }
 
-    public static void writeTransactionsToJson(List<Transaction> list, String path) {
-        try {
-            File file = new File(path);
-            File parent = file.getParentFile();
-            if (parent != null && !parent.exists()) {
-                parent.mkdirs();
-            }
+    public static Stream<Transaction> streamTransactions(String fileName, Predicate<? super Transaction> filter) throws IOException {
+        Path p = Paths.get(BASE_PATH, fileName);
+        TransactionLog log = ledgerLog(fileName);
 
-            try (FileWriter fw = new FileWriter(file)) {
-                objectMapper.writeValue(fw, list);
-                System.out.println("Successfully wrote " + list.size() + " transactions to -> " + path);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        InputStream in = null;
+        if (Files.exists(p)) {
+            in = new BufferedInputStream(Files.newInputStream(p));
+        } else if (!Files.exists(log.getLogPath())) {
+            in = JsonUtils.class.getClassLoader().getResourceAsStream("data/" + fileName);
         }
-    }
 
-    /* ---------------- JSON Merge & Deduplication ---------------- */
-    public static List<Transaction> mergeAndRemoveDuplicates(List<String> paths) throws IOException {
-        Map<String, Transaction> map = new HashMap<>();
-        for (String p : paths) {
-            for (Transaction tx : readJsonFile(p)) {
-                String id = Optional.ofNullable(tx.getTransactionId()).orElse(UUID.randomUUID().toString());
-                Transaction existing = map.get(id);
-                if (existing == null) {
-                    map.put(id, tx);
-                    continue;
-                }
-                Date newDate = parseDate(tx.getTransactionTime());
-                Date oldDate = parseDate(existing.getTransactionTime());
-                if (oldDate == null || (newDate != null && newDate.after(oldDate))) {
-                    map.put(id, tx);
-                }
+        TransactionSpliterator it = new TransactionSpliterator(
+                in == null ? null : objectMapper.getFactory().createParser(in),
+                objectMapper, log.pendingByKey(), filter);
+        return StreamSupport.stream(it, false).onClose(() -> {
+            try {
+                it.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        });
+    }
+
+    /** Collect the ledger records matching {@code filter} without materializing the rest */
+    public static List<Transaction> findTransactions(Predicate<? super Transaction> filter) {
+        try (Stream<Transaction> s = streamTransactions(filter)) {
+            return s.collect(Collectors.toList());
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Failed to stream " + DATA_FILE + ": " + e.getMessage());
+            return Collections.emptyList();
         }
-        return new ArrayList<>(map.values());
     }
 
-    private static Date parseDate(String s) {
-        if (s == null) return null;
+    /** Append-only log backing a ledger file under {@code BASE_PATH} */
+    static TransactionLog ledgerLog(String fileName) {
+        return LOGS.computeIfAbsent(Paths.get(BASE_PATH, fileName).toAbsolutePath().normalize(), TransactionLog::new);
+    }
+
+    public static void writeTransactionsToJson(List<Transaction> list, String path) {
         try {
-            return sdf.parse(s.replace("\"", ""));
-        } catch (ParseException e) {
-            return null;
+            // UTF-8 into a temp file, fsync, then atomic rename: a crash never leaves a truncated ledger
+            AtomicFiles.write(Paths.get(path), out -> objectMapper.writeValue(out, list));
+            System.out.println("Successfully wrote " + list.size() + " transactions to -> " + path);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
+    /**
+     * Incremental upsert of a batch into the ledger: each row is checked against the persisted
+     * id index, and only new or newer rows are appended to the log. Cost follows the batch size.
+     */
+    public static ImportResult upsertTransactions(Collection<Transaction> txs) throws IOException {
+        ImportResult result = ledgerLog(DATA_FILE).upsert(txs);
+        if (result.inserted() + result.updated() > 0) TransactionStore.get().invalidate();
+        System.out.println("Merged " + txs.size() + " transactions: " + result);
+        return result;
+    }
+
     /* ---------------- CSV → Transaction ---------------- */
     public static List<Transaction> parseCsvToTransactions(String csvFilePath) {
-        List<Transaction> list = new ArrayList<>();
-        boolean start = false;
-        boolean isAlipay = csvFilePath.contains("alipay_record");
-        Charset charset = isAlipay ? Charset.forName("GBK") : StandardCharsets.UTF_8;
-
-        try (CSVReader reader = new CSVReaderBuilder(new InputStreamReader(new FileInputStream(csvFilePath), charset))
-                .withCSVParser(new CSVParserBuilder().withSeparator(',').build()).build()) {
-            String[] cols;
-            while ((cols = reader.readNext()) != null) {
-                if (!start) {
-                    String h = String.join(",", cols);
-                    if (h.contains("交易时间") && h.contains("金额")) start = true;
-                    continue;
-                }
-                if (isAlipay) {
-                    if (cols.length < 12) continue;
-                    addTx(list, cols[0], cols[1], cols[2], cols[4], cols[5], cols[6], cols[7], cols[8], cols[9], cols[10], cols[11]);
-                } else {
-                    if (cols.length < 11) continue;
-                    addTx(list, cols[0], cols[1], cols[2], cols[3], cols[4], cols[5], cols[6], cols[7], cols[8], cols[9], cols[10]);
-                }
-            }
-        } catch (Exception e) {
+        // Charset and export format (Alipay/WeChat) are detected from the file content
+        try {
+            return CsvImporter.DEFAULT.parse(Paths.get(csvFilePath));
+        } catch (IOException e) {
             e.printStackTrace();
+            return new ArrayList<>();
         }
-        return list;
     }
 
-    private static void addTx(List<Transaction> list,
-                              String time, String type, String cp, String item,
-                              String incExp, String amtStr, String pay,
-                              String status, String txId, String mchId, String note) {
+    /* ---------------- CSV → JSON Full Process with Callback ---------------- */
+    public static ImportResult parseCsv2Json(String csvFilePath, DeepSeek.ProgressCallback cb) throws IOException, InterruptedException {
+        return importCsvFiles(List.of(csvFilePath), cb);
+    }
 
-        txId = StringUtil.cleanId(txId);
-        mchId = StringUtil.cleanId(mchId);
+    /**
+     * Batch import: parse all files concurrently, dedupe across them (newest row per id wins),
+     * drop rows the ledger already holds, classify the rest in one pass and commit once.
+     * Progress covers the whole batch: parsing 0–10%, classification 10–95%, commit.
+     */
+    public static ImportResult importCsvFiles(List<String> csvFilePaths, DeepSeek.ProgressCallback cb) throws IOException, InterruptedException {
+        List<CompletableFuture<List<Transaction>>> parsing = new ArrayList<>();
+        for (String path : csvFilePaths) {
+            parsing.add(CompletableFuture.supplyAsync(() -> parseCsvToTransactions(path)));
+        }
+        int parsed = 0;
+        Map<String, Transaction> byId = new LinkedHashMap<>();
+        for (int i = 0; i < parsing.size(); i++) {
+            for (Transaction tx : parsing.get(i).join()) {
+                parsed++;
+                String key = TransactionLog.keyOf(tx);
+                if (TransactionLog.shouldReplace(byId.get(key), tx)) byId.put(key, tx);
+            }
+            cb.update(0.1 * (i + 1) / parsing.size());
+        }
 
-        double amount = 0.0;
-        try {
-            amount = Double.parseDouble(amtStr.replace("¥", "").trim());
-        } catch (NumberFormatException ignored) {}
-
-        Transaction tx = new Transaction();
-        tx.setTransactionTime(time.trim());
-        tx.setTransactionType(type.trim());
-        tx.setCounterparty(cp.trim());
-        tx.setItem(item.trim());
-        tx.setIncExp(incExp.trim());
-        tx.setAmount(amount);
-        tx.setPaymentMethod(pay.trim());
-        tx.setStatus(status.trim());
-        tx.setTransactionId(txId);
-        tx.setMerchantId(mchId);
-        tx.setNote(note.trim());
-
-        list.add(tx);
-    }
+        // Only rows that will actually change the ledger are worth an API call
+        TransactionLog ledger = ledgerLog(DATA_FILE);
+        List<Transaction> candidates = new ArrayList<>();
+        for (Transaction tx : byId.values()) {
+            if (ledger.wouldChange(tx)) candidates.add(tx);
+        }
+        DeepSeek.classifyTransactions(candidates, p -> cb.update(0.1 + 0.85 * p));
 
-    /* ---------------- CSV → JSON Full Process with Callback ---------------- */
-    public static void parseCsv2Json(String csvFilePath, DeepSeek.ProgressCallback cb) throws IOException, InterruptedException {
-        List<Transaction> list = parseCsvToTransactions(csvFilePath);
-        writeTransactionsToJson(list, TEMP_JSON_PATH);
-        DeepSeek.classifyBatchTransaction(TEMP_JSON_PATH, cb);
-
-        List<Transaction> merged = mergeAndRemoveDuplicates(Arrays.asList(DATA_JSON_PATH, TEMP_JSON_PATH));
-        writeTransactionsToJson(merged, DATA_JSON_PATH);
-        Files.deleteIfExists(Paths.get(TEMP_JSON_PATH));
+        ImportResult result = upsertTransactions(candidates)
+                .plus(new ImportResult(0, 0, parsed - candidates.size()));
+        cb.update(1.0);
+        return result;
     }
 
-    public static void parseCsv2Json(String csvFilePath) throws IOException, InterruptedException {
-        parseCsv2Json(csvFilePath, p -> {});
+    public static ImportResult parseCsv2Json(String csvFilePath) throws IOException, InterruptedException {
+        return parseCsv2Json(csvFilePath, p -> {});
     }
 
     /* ---------------- Update Classification Results ---------------- */
     public static synchronized void updateTransactionTypeById(String id, String type) throws IOException {
-        updateTypeInJson(DATA_JSON_PATH, id, type);
+        updateTransactionTypes(Map.of(id, type));
     }
 
-    public static synchronized void updateTempTransactionTypeById(String transactionId, String type) throws IOException {
-        if (!Files.exists(Paths.get(TEMP_JSON_PATH))) return;
-        JsonNode rootNode = objectMapper.readTree(new File(TEMP_JSON_PATH));
-        if (!rootNode.isArray()) return;
-
-        String cleanInputId = StringUtil.cleanId(transactionId);
-
-        for (JsonNode node : rootNode) {
-            String storedId = StringUtil.cleanId(node.path("transactionId").asText());
-            if (cleanInputId.equals(storedId)) {
-                ((ObjectNode) node).put("transactionId", storedId);
-                ((ObjectNode) node).put("type", type);
-                objectMapper.writeValue(new File(TEMP_JSON_PATH), rootNode);
-                break;
-            }
-        }
+    /** Apply many reclassifications (id → category) as one log append and one store invalidation */
+    public static synchronized void updateTransactionTypes(Map<String, String> types) throws IOException {
+        Map<String, String> lower = new LinkedHashMap<>();
+        types.forEach((id, type) -> lower.put(id, type.toLowerCase()));
+        ledgerLog(DATA_FILE).appendTypeUpdates(lower);
+        TransactionStore.get().invalidate();
     }
 
-    private static void updateTypeInJson(String path, String id, String newType) throws IOException {
-        if (!Files.exists(Paths.get(path))) return;
-        JsonNode root = objectMapper.readTree(new File(path));
-        if (!root.isArray()) return;
-
-        String cleanInputId = StringUtil.cleanId(id);
-
-        for (JsonNode node : root) {
-            String storedId = StringUtil.cleanId(node.path("transactionId").asText());
-            if (cleanInputId.equals(storedId)) {
-                ObjectNode obj = (ObjectNode) node;
-                obj.put("transactionId", storedId);
-                obj.put("transactionType", newType.toLowerCase());
-                obj.remove("type");
-                objectMapper.writeValue(new File(path), root);
-                break;
-            }
+    /* ---------------- Utility Query ---------------- */
+
+    /** Look up one ledger transaction through the persistent id index, without loading the ledger */
+    public static Transaction findTransactionById(String id) {
+        try {
+            return ledgerLog(DATA_FILE).find(id);
+        } catch (IOException e) {
+            System.err.println("Failed to look up " + id + ": " + e.getMessage());
+            return null;
         }
     }
 
-    /* ---------------- Utility Query ---------------- */
     public static Transaction findTransactionById(List<Transaction> list, String id) {
         id = StringUtil.cleanId(id);
         for (Transaction t : list) {
@@ -248,27 +226,43 @@ public class JsonUtils {
 
     /* ---------------- Business Utilities ---------------- */
 
-    /** Add a transaction manually and merge it into data file after classification */
-    public static void addManualTransaction(Transaction tx) throws IOException, InterruptedException {
-        writeTransactionsToJson(Collections.singletonList(tx), TEMP_JSON_PATH);
-        DeepSeek.classifyBatchTransaction(TEMP_JSON_PATH);
-        List<Transaction> merged = mergeAndRemoveDuplicates(Arrays.asList(DATA_JSON_PATH, TEMP_JSON_PATH));
-        writeTransactionsToJson(merged, DATA_JSON_PATH);
-        Files.deleteIfExists(Paths.get(TEMP_JSON_PATH));
+    /** Add a transaction manually and merge it into the ledger after classification */
+    public static ImportResult addManualTransaction(Transaction tx) throws IOException, InterruptedException {
+        DeepSeek.classifyTransactions(List.of(tx), p -> {});
+        return upsertTransactions(List.of(tx));
     }
 
-    /** Filter transactions by year and month */
-    public static List<Transaction> getTransactionsByMonth(int year, int month) {
-        List<Transaction> list = readTransactionsFromClasspath("transactionData.json");
-        List<Transaction> out = new ArrayList<>();
-        for (Transaction t : list) {
-            try {
-                LocalDateTime ldt = LocalDateTime.parse(t.getTransactionTime().replace("\"", ""), dtf);
-                if (ldt.getYear() == year && ldt.getMonthValue() == month)
-                    out.add(t);
-            } catch (Exception ignored) {}
+    /**
+     * Pre-aggregated totals of the ledger by day/month, category, income/expense and payment
+     * method; kept current on every import and reclassification. Empty if the ledger is unreadable.
+     */
+    public static RollupCube rollup() {
+        try {
+            return ledgerLog(DATA_FILE).rollup();
+        } catch (IOException e) {
+            System.err.println("Failed to load rollup: " + e.getMessage());
+            return RollupCube.of(Collections.emptyList());
+        }
+    }
+
+    /** Local classifier over the ledger, trained once and kept current on every import and reclassification */
+    public static LocalClassifier localClassifier() {
+        try {
+            return ledgerLog(DATA_FILE).classifier();
+        } catch (IOException e) {
+            System.err.println("Failed to train local classifier: " + e.getMessage());
+            return LocalClassifier.train(Collections.emptyList());
         }
-        return out;
+    }
+
+    /** Filter transactions by year and month; served from the shared month-partitioned store */
+    public static List<Transaction> getTransactionsByMonth(int year, int month) {
+        return TransactionStore.get().byMonth(year, month);
+    }
+
+    /** Transactions on the days {@code from}..{@code to} (inclusive), via the store's time index */
+    public static List<Transaction> getTransactionsBetween(LocalDate from, LocalDate to) {
+        return TransactionStore.get().range(from, to);
     }
 
     /** Escape CSV fields: sanitize special characters and escape quotes */
@@ -278,8 +272,8 @@ public class JsonUtils {
         return clean.replace("\"", "\"\"");
     }
 
-    /** Export list of transactions to a CSV file */
-    public static void exportTransactions(List<Transaction> transactions, String outputCsvPath) throws IOException {
+    /** Export transactions to a CSV file */
+    public static void exportTransactions(Iterable<Transaction> transactions, String outputCsvPath) throws IOException {
         try (
                 OutputStream os = new FileOutputStream(outputCsvPath);
                 OutputStreamWriter osw = new OutputStreamWriter(os, StandardCharsets.UTF_8);
@@ -308,11 +302,8 @@ public class JsonUtils {
 
     /** Export transactionData.json into CSV file (UTF-8 encoding) */
     public static void exportTransactionsToCsv(String jsonFileName, String outputCsvPath) throws IOException {
-        String jsonPath = Paths.get(BASE_PATH, jsonFileName).toString();
-        List<Transaction> list = objectMapper.readValue(
-                new File(jsonPath),
-                objectMapper.getTypeFactory().constructCollectionType(List.class, Transaction.class)
-        );
-        exportTransactions(list, outputCsvPath);
+        try (Stream<Transaction> s = streamTransactions(jsonFileName, t -> true)) {
+            exportTransactions(s::iterator, outputCsvPath);
+        }
     }
 }
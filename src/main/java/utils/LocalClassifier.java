@@ -0,0 +1,216 @@
+package utils;
+
+import pojo.Category;
+import pojo.Transaction;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Offline classifier used as a fast path before the LLM.
+ * <p>
+ * Three stages, in order: the label history of rows with exactly the same counterparty and item;
+ * hand-written keyword rules over counterparty / item / the export's own transaction type; and a
+ * multinomial naive-Bayes model over character bigrams of counterparty and item. History and model
+ * are learned from the already-classified ledger. A rule starts out trusted at {@link #RULE_PRIOR}
+ * and its confidence is its precision on the ledger rows it matches, shrunk towards that prior, so
+ * a rule the user's own labels keep contradicting stops answering. Only predictions whose
+ * confidence reaches the threshold are answered locally; everything else is escalated to DeepSeek.
+ * <p>
+ * A trained instance is kept current with {@link #apply} as the ledger changes (see
+ * {@link TransactionLog#classifier()}), so it is built once rather than per import.
+ * <p>
+ * The exact-match stage matters because naive Bayes is badly overconfident on recurring rows:
+ * a merchant labelled one way 77% of the time still scores above 0.99, as all its bigrams vote
+ * together. Rows seen at least {@link #MIN_HISTORY} times therefore use their empirical label
+ * frequency instead.
+ */
+public final class LocalClassifier {
+
+    /** Best guess with its confidence; {@code source} is "rule", "history" or "model" */
+    public record Prediction(Category category, double confidence, String source) {}
+
+    static final double DEFAULT_THRESHOLD = 0.95;
+    /** Below this many labelled rows the model is not trusted at all */
+    static final int MIN_TRAINING_ROWS = 20;
+    /** Identical rows needed before their label history is used instead of the model */
+    static final int MIN_HISTORY = 3;
+    /** Confidence of a rule with no ledger evidence, and the weight of that prior in ledger rows */
+    static final double RULE_PRIOR = 0.99;
+    static final int RULE_PRIOR_ROWS = 5;
+
+    private record Rule(Pattern pattern, Category category) {}
+
+    private static final List<Rule> RULES = List.of(
+            rule("转账|红包|转入零钱|零钱提现|亲属卡", Category.TRANSFER_ACCOUNTS),
+            rule("话费|流量|宽带|中国移动|中国联通|中国电信", Category.COMMUNICATION),
+            rule("房租|租金|物业|水费|电费|燃气|自如|链家", Category.HOUSING),
+            rule("医院|诊所|药房|药店|大药|医疗|体检", Category.HEALTHCARE),
+            rule("学费|培训|课程|网课|教育|书店|扇贝|网易有道", Category.EDUCATION_AND_TRAINING),
+            rule("基金|理财|证券|股票|保险|余额宝|理财通", Category.FINANCE_AND_INVESTMENT),
+            rule("滴滴|出行|打车|地铁|公交|铁路|12306|航空|机票|加油|停车|哈啰|单车", Category.TRANSPORTATION),
+            rule("麦当劳|肯德基|kfc|达美乐|必胜客|星巴克|瑞幸|luckin|咖啡|奶茶|外卖|饿了么|餐饮|餐厅|饭|食堂|小吃", Category.FOOD_AND_DINING),
+            rule("steam|valve|暴雪|游戏|电影|影城|ktv|音乐|视频会员|爱奇艺|优酷|哔哩哔哩", Category.ENTERTAINMENT),
+            rule("淘宝|天猫|京东|拼多多|超市|便利店|商城|无人售货", Category.SHOPPING));
+
+    private static Rule rule(String regex, Category category) {
+        return new Rule(Pattern.compile(regex, Pattern.CASE_INSENSITIVE), category);
+    }
+
+    private static final Category[] CATEGORIES = Arrays.stream(Category.values())
+            .filter(c -> c != Category.UNKNOWN).toArray(Category[]::new);
+
+    private final double threshold;
+    /** feature → occurrences per category (indexed like CATEGORIES) */
+    private final Map<String, int[]> featureCounts = new HashMap<>();
+    /** cleaned "counterparty|item" → labels per category */
+    private final Map<String, int[]> exactCounts = new HashMap<>();
+    private final int[] docCounts = new int[CATEGORIES.length];
+    private final long[] featureTotals = new long[CATEGORIES.length];
+    private int docs;
+    /** Labelled ledger rows each rule matches, and how many of them carry the rule's category */
+    private final int[] ruleHits = new int[RULES.size()];
+    private final int[] ruleCorrect = new int[RULES.size()];
+
+    private LocalClassifier(double threshold) {
+        this.threshold = threshold;
+    }
+
+    /** Train on every ledger row that already has a known category */
+    public static LocalClassifier train(Iterable<Transaction> ledger) {
+        return train(ledger, DEFAULT_THRESHOLD);
+    }
+
+    public static LocalClassifier train(Iterable<Transaction> ledger, double threshold) {
+        LocalClassifier lc = new LocalClassifier(threshold);
+        for (Transaction t : ledger) lc.add(t, 1);
+        return lc;
+    }
+
+    /** Replace {@code before} by {@code after} in the training data; either may be null (insert / delete) */
+    public synchronized void apply(Transaction before, Transaction after) {
+        if (before != null) add(before, -1);
+        if (after != null) add(after, 1);
+    }
+
+    private void add(Transaction t, int sign) {
+        Category c = t.getCategory();
+        if (c == Category.UNKNOWN) return;
+        int k = indexOf(c);
+        docCounts[k] += sign;
+        docs += sign;
+        addCount(exactCounts, exactKey(t.getCounterparty(), t.getItem()), k, sign);
+        for (String f : features(t.getCounterparty(), t.getItem())) {
+            addCount(featureCounts, f, k, sign);
+            featureTotals[k] += sign;
+        }
+        int r = firstRule(text(t.getTransactionType(), t.getCounterparty(), t.getItem()));
+        if (r >= 0) {
+            ruleHits[r] += sign;
+            if (RULES.get(r).category() == c) ruleCorrect[r] += sign;
+        }
+    }
+
+    /** Entries that drop back to all zeros are removed so the vocabulary size stays exact */
+    private static void addCount(Map<String, int[]> counts, String key, int k, int sign) {
+        int[] row = counts.computeIfAbsent(key, x -> new int[CATEGORIES.length]);
+        row[k] += sign;
+        if (sign < 0 && Arrays.stream(row).allMatch(v -> v == 0)) counts.remove(key);
+    }
+
+    /** Category when confident enough to skip the API, otherwise null */
+    public Category classify(String counterparty, String item, String exportType) {
+        Prediction p = predict(counterparty, item, exportType);
+        return p != null && p.confidence() >= threshold ? p.category() : null;
+    }
+
+    /** Best guess regardless of confidence, or null when there is nothing to go on */
+    public synchronized Prediction predict(String counterparty, String item, String exportType) {
+        int[] seen = exactCounts.get(exactKey(counterparty, item));
+        if (seen != null) {
+            int best = 0, n = 0;
+            for (int k = 0; k < seen.length; k++) {
+                n += seen[k];
+                if (seen[k] > seen[best]) best = k;
+            }
+            // Share of the majority label among identical rows, once there are enough of them
+            if (n >= MIN_HISTORY) return new Prediction(CATEGORIES[best], seen[best] * 1.0 / n, "history");
+        }
+        int r = firstRule(text(exportType, counterparty, item));
+        if (r >= 0) {
+            double precision = (ruleCorrect[r] + RULE_PRIOR * RULE_PRIOR_ROWS) / (ruleHits[r] + RULE_PRIOR_ROWS);
+            // A rule the ledger contradicts falls through to the model
+            if (precision >= threshold) return new Prediction(RULES.get(r).category(), precision, "rule");
+        }
+        if (docs < MIN_TRAINING_ROWS) return null;
+
+        // log P(c) + Σ log P(f|c) with Laplace smoothing, normalized into a posterior
+        int vocab = featureCounts.size() + 1;
+        double[] score = new double[CATEGORIES.length];
+        for (int k = 0; k < CATEGORIES.length; k++) {
+            score[k] = Math.log((docCounts[k] + 1.0) / (docs + CATEGORIES.length));
+        }
+        boolean known = false;
+        for (String f : features(counterparty, item)) {
+            int[] counts = featureCounts.get(f);
+            known |= counts != null;
+            for (int k = 0; k < CATEGORIES.length; k++) {
+                score[k] += Math.log(((counts == null ? 0 : counts[k]) + 1.0) / (featureTotals[k] + vocab));
+            }
+        }
+        if (!known) return null;
+
+        int best = 0;
+        for (int k = 1; k < score.length; k++) if (score[k] > score[best]) best = k;
+        double sum = 0;
+        for (double s : score) sum += Math.exp(s - score[best]);
+        return new Prediction(CATEGORIES[best], 1 / sum, "model");
+    }
+
+    /** Index of the first rule matching {@code text}, or -1 */
+    private static int firstRule(String text) {
+        for (int r = 0; r < RULES.size(); r++) {
+            if (RULES.get(r).pattern().matcher(text).find()) return r;
+        }
+        return -1;
+    }
+
+    private static String text(String exportType, String counterparty, String item) {
+        return raw(exportType) + ' ' + raw(counterparty) + ' ' + raw(item);
+    }
+
+    /** Whole counterparty plus character bigrams of counterparty and item */
+    static List<String> features(String counterparty, String item) {
+        List<String> out = new ArrayList<>();
+        String cp = clean(counterparty);
+        if (!cp.isEmpty()) out.add("cp:" + cp);
+        bigrams(cp, out);
+        bigrams(clean(item), out);
+        return out;
+    }
+
+    private static void bigrams(String s, List<String> out) {
+        for (int i = 0; i + 1 < s.length(); i++) {
+            if (s.charAt(i) != ' ' && s.charAt(i + 1) != ' ') out.add(s.substring(i, i + 2));
+        }
+    }
+
+    private static String exactKey(String counterparty, String item) {
+        return clean(counterparty) + '|' + clean(item);
+    }
+
+    private static String raw(String s) {
+        return s == null ? "" : s.replace("\"", "").trim();
+    }
+
+    /** Lower case, quotes and the "/" placeholder removed, digit runs (order numbers) collapsed */
+    private static String clean(String s) {
+        s = raw(s).toLowerCase();
+        return "/".equals(s) ? "" : s.replaceAll("\\d+", "#");
+    }
+
+    private static int indexOf(Category c) {
+        for (int k = 0; k < CATEGORIES.length; k++) if (CATEGORIES[k] == c) return k;
+        throw new IllegalArgumentException(c.toString());
+    }
+}
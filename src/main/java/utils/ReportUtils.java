@@ -5,9 +5,13 @@ import org.commonmark.node.*;
 import org.commonmark.parser.Parser;
 import org.commonmark.renderer.html.HtmlRenderer;
 import org.xhtmlrenderer.pdf.ITextRenderer;
+import pojo.Category;
+import pojo.IncExp;
+import pojo.Money;
 import pojo.Transaction;
 
 import java.io.*;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -60,31 +64,44 @@ public class ReportUtils {
         int month = DateContext.getMonth();
         List<Transaction> transactions = JsonUtils.getTransactionsByMonth(year, month);
 
-        double totalIncome = 0.0;
-        double totalExpense = 0.0;
-        Map<String, Double> categorySum = new TreeMap<>();
+        // Sums in fen: exact, and no boxing per row
+        long incomeFen = 0;
+        long expenseFen = 0;
+        long[] categoryFen = new long[Category.values().length];
+        // Types outside the enum keep their own labels instead of collapsing into "unknown"
+        Map<String, Long> otherFen = new HashMap<>();
 
         for (Transaction t : transactions) {
-            double amount = t.getAmount();
-            String type = t.getTransactionType().toLowerCase();
-
-            if ("收入".equals(t.getIncExp())) {
-                totalIncome += amount;
+            long fen = t.getAmountCents();
+            if (t.getFlow() == IncExp.INCOME) {
+                incomeFen += fen;
             } else {
-                totalExpense += amount;
-                categorySum.merge(type, amount, Double::sum);
+                expenseFen += fen;
+                if (t.getCategory() == Category.UNKNOWN) {
+                    otherFen.merge(AggregationEngine.typeLabel(t.getTransactionType()), fen, Long::sum);
+                } else {
+                    categoryFen[t.getCategory().ordinal()] += fen;
+                }
             }
         }
 
         StringBuilder sb = new StringBuilder();
         sb.append(String.format("Period: %d-%02d\n", year, month));
-        sb.append(String.format("Total Income: ¥%.2f\n", totalIncome));
-        sb.append(String.format("Total Expense: ¥%.2f\n", totalExpense));
-        sb.append(String.format("Net Balance: ¥%.2f\n\n", totalIncome - totalExpense));
-
+        sb.append("Total Income: ¥").append(Money.format(incomeFen)).append('\n');
+        sb.append("Total Expense: ¥").append(Money.format(expenseFen)).append('\n');
+        sb.append("Net Balance: ¥").append(Money.format(incomeFen - expenseFen)).append("\n\n");
+
+        // Categories sorted by label, as before
+        Map<String, Long> categorySum = new TreeMap<>();
+        for (Category c : Category.values()) {
+            if (categoryFen[c.ordinal()] != 0) categorySum.put(c.label(), categoryFen[c.ordinal()]);
+        }
+        otherFen.forEach((type, fen) -> {
+            if (fen != 0) categorySum.merge(type, fen, Long::sum);
+        });
         sb.append("Spending by Category:\n");
-        for (Map.Entry<String, Double> entry : categorySum.entrySet()) {
-            sb.append(String.format("- %s: ¥%.2f\n", entry.getKey(), entry.getValue()));
+        for (Map.Entry<String, Long> entry : categorySum.entrySet()) {
+            sb.append("- ").append(entry.getKey()).append(": ¥").append(Money.format(entry.getValue())).append('\n');
         }
 
         return sb.toString();
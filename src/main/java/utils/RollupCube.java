@@ -0,0 +1,252 @@
+package utils;
+
+import pojo.Category;
+import pojo.IncExp;
+import pojo.Transaction;
+import utils.AggregationEngine.Totals;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Pre-aggregated ledger totals keyed by (day, category, incExp, paymentMethod), with a second
+ * level keyed by (month, category, incExp, paymentMethod).
+ * <p>
+ * Each cell holds a sum in cents and a row count. Cells live in sorted maps whose long keys
+ * put the day (or month) in the high bits, so a date range is one contiguous sub-map and a
+ * month or year total touches at most a few hundred cells however long the history is.
+ * {@link TransactionLog} keeps the cube current by applying every appended entry as a
+ * remove-old/add-new delta, and persists it next to the ledger ({@code transactionData.rollup})
+ * together with a {@link Stamp} of the ledger files it reflects; a stale or missing file is
+ * rebuilt with one scan. Rows without a usable time are not part of the cube.
+ */
+public final class RollupCube {
+
+    private static final int MAGIC = 0x524F4C31; // "ROL1"
+    private static final int FLOWS = IncExp.values().length;
+
+    /** Ledger file sizes and snapshot modification time the cube was computed from */
+    public record Stamp(long snapshotSize, long snapshotMtime, long logSize) {
+
+        static Stamp of(Path snapshot, Path log) throws IOException {
+            return new Stamp(Files.exists(snapshot) ? Files.size(snapshot) : -1,
+                    Files.exists(snapshot) ? Files.getLastModifiedTime(snapshot).toMillis() : -1,
+                    Files.exists(log) ? Files.size(log) : -1);
+        }
+    }
+
+    /** key → {cents, count} */
+    private final TreeMap<Long, long[]> days = new TreeMap<>();
+    private final TreeMap<Long, long[]> months = new TreeMap<>();
+    private final List<String> paymentMethods = new ArrayList<>();
+    private final Map<String, Integer> paymentCodes = new HashMap<>();
+
+    private RollupCube() {
+    }
+
+    /** Cube over {@code transactions}, built in one scan */
+    public static RollupCube of(Iterable<Transaction> transactions) {
+        RollupCube cube = new RollupCube();
+        for (Transaction t : transactions) cube.add(t, 1);
+        return cube;
+    }
+
+    /* ---------------- Updates ---------------- */
+
+    /** Replace {@code before} by {@code after}; either may be null (insert / delete) */
+    public synchronized void apply(Transaction before, Transaction after) {
+        if (before != null) add(before, -1);
+        if (after != null) add(after, 1);
+    }
+
+    private void add(Transaction t, int sign) {
+        if (t.getTime() == null) return;
+        long low = cellBits(t.getCategory(), t.getFlow(), paymentCode(t.getPaymentMethod()));
+        long cents = sign * t.getAmountCents();
+        addCell(days, (t.getTime().toLocalDate().toEpochDay() << 32) | low, cents, sign);
+        addCell(months, ((long) monthIndex(YearMonth.from(t.getTime())) << 32) | low, cents, sign);
+    }
+
+    private static void addCell(TreeMap<Long, long[]> level, long key, long cents, int count) {
+        long[] cell = level.computeIfAbsent(key, k -> new long[2]);
+        cell[0] += cents;
+        cell[1] += count;
+        if (cell[1] == 0) level.remove(key);
+    }
+
+    /* ---------------- Queries ---------------- */
+
+    /** Totals of the days {@code from}..{@code to}, inclusive */
+    public synchronized Totals total(LocalDate from, LocalDate to) {
+        Acc acc = new Acc();
+        for (Map.Entry<Long, long[]> e : dayRange(from, to).entrySet()) acc.add(e.getKey(), e.getValue());
+        return acc.totals();
+    }
+
+    public synchronized Totals month(YearMonth month) {
+        Acc acc = new Acc();
+        for (Map.Entry<Long, long[]> e : monthRange(month, month).entrySet()) acc.add(e.getKey(), e.getValue());
+        return acc.totals();
+    }
+
+    public synchronized Totals year(int year) {
+        Acc acc = new Acc();
+        for (Map.Entry<Long, long[]> e : monthRange(YearMonth.of(year, 1), YearMonth.of(year, 12)).entrySet()) {
+            acc.add(e.getKey(), e.getValue());
+        }
+        return acc.totals();
+    }
+
+    /** Per-category totals of the months {@code from}..{@code to}, inclusive */
+    public synchronized Map<Category, Totals> byCategory(YearMonth from, YearMonth to) {
+        Map<Category, Acc> accs = new EnumMap<>(Category.class);
+        for (Map.Entry<Long, long[]> e : monthRange(from, to).entrySet()) {
+            accs.computeIfAbsent(categoryOf(e.getKey()), k -> new Acc()).add(e.getKey(), e.getValue());
+        }
+        Map<Category, Totals> out = new EnumMap<>(Category.class);
+        accs.forEach((c, acc) -> out.put(c, acc.totals()));
+        return out;
+    }
+
+    /** Per-payment-method totals of the days {@code from}..{@code to}, inclusive */
+    public synchronized Map<String, Totals> byPaymentMethod(LocalDate from, LocalDate to) {
+        Map<String, Acc> accs = new TreeMap<>();
+        for (Map.Entry<Long, long[]> e : dayRange(from, to).entrySet()) {
+            String pm = paymentMethods.get((int) (e.getKey() & 0xFFFFFF));
+            accs.computeIfAbsent(pm, k -> new Acc()).add(e.getKey(), e.getValue());
+        }
+        Map<String, Totals> out = new TreeMap<>();
+        accs.forEach((pm, acc) -> out.put(pm, acc.totals()));
+        return out;
+    }
+
+    /** Totals of each day with transactions in {@code from}..{@code to}, inclusive */
+    public synchronized SortedMap<LocalDate, Totals> byDay(LocalDate from, LocalDate to) {
+        SortedMap<LocalDate, Totals> out = new TreeMap<>();
+        long day = Long.MIN_VALUE;
+        Acc acc = null;
+        for (Map.Entry<Long, long[]> e : dayRange(from, to).entrySet()) {
+            long d = e.getKey() >> 32;
+            if (d != day) {
+                if (acc != null) out.put(LocalDate.ofEpochDay(day), acc.totals());
+                day = d;
+                acc = new Acc();
+            }
+            acc.add(e.getKey(), e.getValue());
+        }
+        if (acc != null) out.put(LocalDate.ofEpochDay(day), acc.totals());
+        return out;
+    }
+
+    /** Number of non-empty day cells */
+    public synchronized int size() {
+        return days.size();
+    }
+
+    private SortedMap<Long, long[]> dayRange(LocalDate from, LocalDate to) {
+        return days.subMap(from.toEpochDay() << 32, (to.toEpochDay() + 1) << 32);
+    }
+
+    private SortedMap<Long, long[]> monthRange(YearMonth from, YearMonth to) {
+        return months.subMap((long) monthIndex(from) << 32, (long) (monthIndex(to) + 1) << 32);
+    }
+
+    /* ---------------- Key Layout ---------------- */
+
+    // Low 32 bits: category (5 bits) | flow (3 bits) | payment method code (24 bits)
+    private static long cellBits(Category c, IncExp f, int payment) {
+        return ((long) c.ordinal() << 27) | ((long) f.ordinal() << 24) | payment;
+    }
+
+    private static Category categoryOf(long key) {
+        return Category.values()[(int) (key >>> 27) & 0x1F];
+    }
+
+    private static int flowOf(long key) {
+        return (int) (key >>> 24) & 0x7;
+    }
+
+    private static int monthIndex(YearMonth m) {
+        return m.getYear() * 12 + m.getMonthValue() - 1;
+    }
+
+    /** Payment methods are dictionary-coded by their cleaned label; codes are never reused */
+    private int paymentCode(String raw) {
+        String label = raw == null ? "" : raw.replace("\"", "").trim();
+        Integer code = paymentCodes.get(label);
+        if (code == null) {
+            code = paymentMethods.size();
+            paymentMethods.add(label);
+            paymentCodes.put(label, code);
+        }
+        return code;
+    }
+
+    private static final class Acc {
+        final long[] cents = new long[FLOWS];
+        final int[] counts = new int[FLOWS];
+
+        void add(long key, long[] cell) {
+            cents[flowOf(key)] += cell[0];
+            counts[flowOf(key)] += (int) cell[1];
+        }
+
+        Totals totals() {
+            return Totals.of(cents, counts);
+        }
+    }
+
+    /* ---------------- Persistence ---------------- */
+
+    /** Write the day cells and dictionary with the stamp of the ledger they reflect */
+    public synchronized void save(Path file, Stamp stamp) throws IOException {
+        AtomicFiles.write(file, os -> {
+            DataOutputStream out = new DataOutputStream(os);
+            out.writeInt(MAGIC);
+            out.writeLong(stamp.snapshotSize());
+            out.writeLong(stamp.snapshotMtime());
+            out.writeLong(stamp.logSize());
+            out.writeInt(paymentMethods.size());
+            for (String pm : paymentMethods) out.writeUTF(pm);
+            out.writeInt(days.size());
+            for (Map.Entry<Long, long[]> e : days.entrySet()) {
+                out.writeLong(e.getKey());
+                out.writeLong(e.getValue()[0]);
+                out.writeLong(e.getValue()[1]);
+            }
+            out.flush();
+        });
+    }
+
+    /** The persisted cube if it was saved for exactly {@code expected}, otherwise null */
+    public static RollupCube load(Path file, Stamp expected) {
+        if (!Files.exists(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) return null;
+            if (!expected.equals(new Stamp(in.readLong(), in.readLong(), in.readLong()))) return null;
+            RollupCube cube = new RollupCube();
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) cube.paymentCode(in.readUTF());
+            int cells = in.readInt();
+            for (int i = 0; i < cells; i++) {
+                long key = in.readLong();
+                long cents = in.readLong();
+                long count = in.readLong();
+                cube.days.put(key, new long[]{cents, count});
+                // Month level is derived from the day cells
+                long month = monthIndex(YearMonth.from(LocalDate.ofEpochDay(key >> 32)));
+                long[] cell = cube.months.computeIfAbsent((month << 32) | (key & 0xFFFFFFFFL), k -> new long[2]);
+                cell[0] += cents;
+                cell[1] += count;
+            }
+            return cube;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable rollup " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
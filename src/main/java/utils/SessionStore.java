@@ -0,0 +1,142 @@
+package utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import java.io.*;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Chat session storage: one append-only JSON Lines file per session ({@code <session>.jsonl},
+ * one message per line) in a sessions directory.
+ * <p>
+ * Sessions are loaded lazily on first access. New messages are queued and written by a
+ * background thread after a short debounce, so several turns (or sessions) touched within the
+ * window are coalesced into one append per session, and a chat turn never waits on disk.
+ * A single legacy {@code .deepseek_sessions.json} file is split into per-session files once.
+ */
+public class SessionStore {
+
+    static final long DEBOUNCE_MS = 200;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final Path dir;
+    private final Map<String, ArrayNode> sessions = new ConcurrentHashMap<>();
+    /** Messages not yet on disk, per session, in order */
+    private final Map<String, List<JsonNode>> pending = new LinkedHashMap<>();
+    private final ScheduledExecutorService writer;
+    private ScheduledFuture<?> scheduled;
+
+    public SessionStore(Path dir, Path legacyFile) {
+        this.dir = dir;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        migrate(legacyFile);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "session-writer-shutdown"));
+    }
+
+    /** Messages of a session, loading its file on first access; null if it does not exist */
+    public ArrayNode get(String sessionId) {
+        return sessions.computeIfAbsent(sessionId, this::load);
+    }
+
+    /** Existing session, or a new one seeded (and persisted) with {@code initial} */
+    public ArrayNode getOrCreate(String sessionId, Supplier<ArrayNode> initial) {
+        ArrayNode msgs = get(sessionId);
+        if (msgs != null) return msgs;
+        return sessions.computeIfAbsent(sessionId, k -> {
+            ArrayNode arr = initial.get();
+            arr.forEach(m -> enqueue(k, m));
+            return arr;
+        });
+    }
+
+    /** Queue messages that were added to a session's array for the background writer */
+    public void append(String sessionId, JsonNode... messages) {
+        for (JsonNode m : messages) enqueue(sessionId, m);
+    }
+
+    /** Write everything queued so far; called by the writer, on shutdown, and by tests */
+    public synchronized void flush() {
+        Map<String, List<JsonNode>> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) return;
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+            scheduled = null;
+        }
+        for (Map.Entry<String, List<JsonNode>> e : batch.entrySet()) {
+            Path file = fileOf(e.getKey());
+            try {
+                Files.createDirectories(dir);
+                StringBuilder lines = new StringBuilder();
+                for (JsonNode m : e.getValue()) lines.append(mapper.writeValueAsString(m)).append('\n');
+                Files.writeString(file, lines, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            } catch (IOException ex) {
+                System.err.println("Failed to write session " + e.getKey() + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    private void enqueue(String sessionId, JsonNode message) {
+        synchronized (pending) {
+            pending.computeIfAbsent(sessionId, k -> new ArrayList<>()).add(message.deepCopy());
+            if (scheduled == null) scheduled = writer.schedule(this::flush, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private ArrayNode load(String sessionId) {
+        Path file = fileOf(sessionId);
+        if (!Files.exists(file)) return null;
+        ArrayNode arr = mapper.createArrayNode();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    arr.add(mapper.readTree(line));
+                } catch (IOException torn) {
+                    break; // a crash mid-append leaves at most one partial trailing line
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to load session " + sessionId + ": " + e.getMessage());
+        }
+        return arr;
+    }
+
+    /** One-time split of the old single-file format into per-session files */
+    private void migrate(Path legacyFile) {
+        if (legacyFile == null || !Files.exists(legacyFile) || Files.exists(dir)) return;
+        try {
+            byte[] data = Files.readAllBytes(legacyFile);
+            if (data.length > 0) {
+                Map<String, List<Map<String, String>>> raw = mapper.readValue(data, new TypeReference<>() {});
+                raw.keySet().removeIf(sid -> sid.startsWith("classify_"));
+                raw.forEach((sid, list) -> list.forEach(m -> enqueue(sid, mapper.valueToTree(m))));
+            }
+            flush();
+            Files.createDirectories(dir);
+            Files.move(legacyFile, legacyFile.resolveSibling(legacyFile.getFileName() + ".migrated"),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Failed to migrate sessions from " + legacyFile + ": " + e.getMessage());
+        }
+    }
+
+    private Path fileOf(String sessionId) {
+        return dir.resolve(URLEncoder.encode(sessionId, StandardCharsets.UTF_8).replace("*", "%2A") + ".jsonl");
+    }
+}
@@ -0,0 +1,51 @@
+package utils;
+
+import pojo.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Transactions sorted by {@link Transaction#getEpochSecond()}, with the times in a parallel
+ * primitive array so a range lookup is two binary searches and a sub-list view.
+ * Rows without a usable time are left out; rows with equal times keep ledger order.
+ */
+final class TimeIndex {
+
+    private final long[] times;
+    private final List<Transaction> rows;
+
+    TimeIndex(Iterable<Transaction> transactions) {
+        List<Transaction> sorted = new ArrayList<>();
+        for (Transaction t : transactions) {
+            if (t.getEpochSecond() != Transaction.NO_TIME) sorted.add(t);
+        }
+        sorted.sort(Comparator.comparingLong(Transaction::getEpochSecond)); // stable
+        this.rows = Collections.unmodifiableList(sorted);
+        this.times = new long[sorted.size()];
+        for (int i = 0; i < times.length; i++) times[i] = sorted.get(i).getEpochSecond();
+    }
+
+    /** Rows with {@code fromEpoch <= time < toEpoch}, in time order */
+    List<Transaction> slice(long fromEpoch, long toEpoch) {
+        if (fromEpoch >= toEpoch) return Collections.emptyList();
+        return rows.subList(lowerBound(fromEpoch), lowerBound(toEpoch));
+    }
+
+    /** Index of the first row whose time is {@code >= epoch} */
+    int lowerBound(long epoch) {
+        int lo = 0, hi = times.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < epoch) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    int size() {
+        return times.length;
+    }
+}
@@ -0,0 +1,121 @@
+package utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pojo.Transaction;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persistent transactionId → byte-offset index over a ledger snapshot.
+ * <p>
+ * Stored next to the snapshot ({@code transactionData.idx}) together with the snapshot's size
+ * and modification time; when either no longer matches (e.g. after compaction) the index is
+ * rebuilt in one streaming pass. A lookup seeks straight to the record and parses only it.
+ */
+class TransactionIndex {
+
+    private static final int MAGIC = 0x54584958; // "TXIX"
+
+    private final Path snapshot;
+    private final Path file;
+    private final ObjectMapper mapper;
+    private Map<String, Long> offsets;
+    private long snapshotSize = -1;
+    private long snapshotMtime = -1;
+
+    TransactionIndex(Path snapshot, ObjectMapper mapper) {
+        this.snapshot = snapshot;
+        this.mapper = mapper;
+        String name = snapshot.getFileName().toString();
+        String base = name.endsWith(".json") ? name.substring(0, name.length() - 5) : name;
+        this.file = snapshot.resolveSibling(base + ".idx");
+    }
+
+    Path getIndexPath() { return file; }
+
+    /** The snapshot record with this id, or null; pending log entries are not applied */
+    synchronized Transaction read(String id) throws IOException {
+        Long offset = offsets().get(StringUtil.cleanId(id));
+        if (offset == null) return null;
+        try (FileChannel ch = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ch.position(offset);
+            try (JsonParser p = mapper.getFactory().createParser(Channels.newInputStream(ch))) {
+                if (p.nextToken() != JsonToken.START_OBJECT) return null;
+                return mapper.readValue(p, Transaction.class);
+            }
+        }
+    }
+
+    private Map<String, Long> offsets() throws IOException {
+        if (!Files.exists(snapshot)) return Map.of();
+        long size = Files.size(snapshot);
+        long mtime = Files.getLastModifiedTime(snapshot).toMillis();
+        if (offsets != null && size == snapshotSize && mtime == snapshotMtime) return offsets;
+
+        offsets = load(size, mtime);
+        if (offsets == null) {
+            offsets = build();
+            save(size, mtime);
+        }
+        snapshotSize = size;
+        snapshotMtime = mtime;
+        return offsets;
+    }
+
+    /** Read the persisted index if it still describes the current snapshot */
+    private Map<String, Long> load(long size, long mtime) {
+        if (!Files.exists(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readLong() != size || in.readLong() != mtime) return null;
+            int n = in.readInt();
+            Map<String, Long> map = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) map.put(in.readUTF(), in.readLong());
+            return map;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** One streaming pass over the snapshot recording where each record starts */
+    private Map<String, Long> build() throws IOException {
+        Map<String, Long> map = new HashMap<>();
+        try (JsonParser p = mapper.getFactory().createParser(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (p.nextToken() != JsonToken.START_ARRAY) return map;
+            while (p.nextToken() == JsonToken.START_OBJECT) {
+                long offset = p.currentTokenLocation().getByteOffset();
+                Transaction tx = mapper.readValue(p, Transaction.class);
+                if (tx.getTransactionId() != null) map.put(StringUtil.cleanId(tx.getTransactionId()), offset);
+            }
+        }
+        return map;
+    }
+
+    private void save(long size, long mtime) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(size);
+            out.writeLong(mtime);
+            out.writeInt(offsets.size());
+            for (Map.Entry<String, Long> e : offsets.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeLong(e.getValue());
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write index " + file + ": " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Failed to write index " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package utils;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import pojo.Transaction;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Append-only write-ahead log for the transaction ledger.
+ * <p>
+ * The ledger is a pretty-printed snapshot ({@code transactionData.json}) plus a JSON Lines
+ * tail ({@code transactionData.jsonl}) next to it. Every mutation is one appended line:
+ * <pre>
+ *   {"op":"upsert","tx":{...}}                  insert or replace a transaction
+ *   {"op":"type","id":"...","type":"shopping"}  reclassify a transaction
+ * </pre>
+ * Reads rebuild the current state from snapshot + log. Once the log grows past
+ * {@link #COMPACT_THRESHOLD} entries it is folded back into the snapshot on a background thread.
+ */
+public class TransactionLog {
+
+    /** Number of log entries after which a background compaction is scheduled */
+    static final int COMPACT_THRESHOLD = 1000;
+    /** Quiet period after the last append before the updated rollup is written back */
+    static final long ROLLUP_SAVE_DELAY_MS = Long.getLong("ledger.rollupSaveDelayMs", 2000);
+
+    private static final ObjectMapper lineMapper = new ObjectMapper();
+    private static final ObjectMapper snapshotMapper = new ObjectMapper();
+
+    /** Background compaction and debounced rollup saves */
+    private static final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ledger-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        lineMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        snapshotMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        snapshotMapper.enable(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    private final Path snapshot;
+    private final Path log;
+    private final TransactionIndex index;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private int entries = -1; // lazily counted on first append
+    private LinkedHashMap<String, List<Entry>> pending; // decoded log tail by key, loaded on first use
+    private final Path rollupFile;
+    private RollupCube rollup; // kept current by appendLines once loaded
+    private ScheduledFuture<?> rollupSave; // pending debounced save, if any
+    private LocalClassifier classifier; // likewise, once trained
+
+    public TransactionLog(Path snapshot) {
+        this.snapshot = snapshot;
+        this.log = logPathFor(snapshot);
+        this.index = new TransactionIndex(snapshot, snapshotMapper);
+        String name = snapshot.getFileName().toString();
+        this.rollupFile = snapshot.resolveSibling((name.endsWith(".json") ? name.substring(0, name.length() - 5) : name)
+                + ".rollup");
+    }
+
+    /** transactionData.json → transactionData.jsonl */
+    static Path logPathFor(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        String base = name.endsWith(".json") ? name.substring(0, name.length() - 5) : name;
+        return snapshot.resolveSibling(base + ".jsonl");
+    }
+
+    public Path getSnapshotPath() { return snapshot; }
+    public Path getLogPath()      { return log; }
+    public Path getIndexPath()    { return index.getIndexPath(); }
+    public Path getRollupPath()   { return rollupFile; }
+
+    /* ---------------- Rollup ---------------- */
+
+    /**
+     * Pre-aggregated totals of the current ledger. Loaded from disk when its stamp matches the
+     * ledger files, otherwise rebuilt with one scan; then updated in memory with every append.
+     * The file is written back once appends have been quiet for {@link #ROLLUP_SAVE_DELAY_MS}
+     * and on compaction; a file that missed the last appends no longer matches the ledger's
+     * stamp and is simply rebuilt on next load.
+     */
+    public synchronized RollupCube rollup() throws IOException {
+        if (rollup == null) {
+            RollupCube.Stamp stamp = RollupCube.Stamp.of(snapshot, log);
+            rollup = RollupCube.load(rollupFile, stamp);
+            if (rollup == null) {
+                rollup = RollupCube.of(readAll());
+                rollup.save(rollupFile, stamp);
+            }
+        }
+        return rollup;
+    }
+
+    /** Write the rollup now if appends changed it since the last save */
+    public synchronized void flushRollup() {
+        if (rollupSave == null) return;
+        rollupSave.cancel(false);
+        rollupSave = null;
+        saveRollup();
+    }
+
+    private void scheduleRollupSave() {
+        if (rollupSave != null) rollupSave.cancel(false);
+        rollupSave = compactor.schedule(this::flushRollup, ROLLUP_SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /* ---------------- Local Classifier ---------------- */
+
+    /** Local classifier trained on the current ledger on first use, then updated with every append */
+    public synchronized LocalClassifier classifier() throws IOException {
+        if (classifier == null) classifier = LocalClassifier.train(readAll());
+        return classifier;
+    }
+
+    /* ---------------- Point Lookup ---------------- */
+
+    /**
+     * Current state of one transaction: the snapshot record found through the id index,
+     * patched with that id's pending log entries. Touches a single record.
+     */
+    public synchronized Transaction find(String id) throws IOException {
+        String key = StringUtil.cleanId(id);
+        return applyAll(index.read(key), pending().get(key));
+    }
+
+    /* ---------------- Append ---------------- */
+
+    /** Append one upsert entry per transaction; a single buffered write for the whole batch */
+    public synchronized void appendUpserts(Collection<Transaction> txs) throws IOException {
+        appendUpserts(txs, Map.of());
+    }
+
+    /** Same, with the current state of keys the caller has already looked up (null = absent) */
+    private void appendUpserts(Collection<Transaction> txs, Map<String, Transaction> known) throws IOException {
+        if (txs.isEmpty()) return;
+        List<String> lines = new ArrayList<>(txs.size());
+        List<Entry> added = new ArrayList<>(txs.size());
+        for (Transaction tx : txs) {
+            ObjectNode e = lineMapper.createObjectNode();
+            e.put("op", "upsert");
+            e.set("tx", lineMapper.valueToTree(tx));
+            lines.add(lineMapper.writeValueAsString(e));
+            added.add(new Entry(keyOf(tx), copy(tx), null));
+        }
+        appendLines(lines, added, known);
+    }
+
+    /** Whether {@link #upsert} would store this row, i.e. its id is new or the row is newer */
+    synchronized boolean wouldChange(Transaction tx) throws IOException {
+        return shouldReplace(find(keyOf(tx)), tx);
+    }
+
+    /**
+     * Incremental merge: each incoming row is checked against the id index and pending entries
+     * (one record read per id), and only rows that change the ledger are appended.
+     */
+    public synchronized ImportResult upsert(Collection<Transaction> txs) throws IOException {
+        int inserted = 0, updated = 0, skipped = 0;
+        Map<String, Transaction> accepted = new LinkedHashMap<>();
+        Map<String, Transaction> stored = new HashMap<>(); // ledger state before this batch
+        for (Transaction tx : txs) {
+            String key = keyOf(tx);
+            if (!accepted.containsKey(key) && !stored.containsKey(key)) stored.put(key, find(key));
+            Transaction current = accepted.containsKey(key) ? accepted.get(key) : stored.get(key);
+            if (!shouldReplace(current, tx)) {
+                skipped++;
+            } else if (current == null) {
+                inserted++;
+                accepted.put(key, tx);
+            } else {
+                if (accepted.containsKey(key)) skipped++; else updated++; // a batch duplicate replaces its twin
+                accepted.put(key, tx);
+            }
+        }
+        appendUpserts(accepted.values(), stored);
+        return new ImportResult(inserted, updated, skipped);
+    }
+
+    /** Append a reclassification entry for a single transaction */
+    public synchronized void appendTypeUpdate(String id, String type) throws IOException {
+        appendTypeUpdates(Map.of(id, type));
+    }
+
+    /** Append reclassification entries for many transactions in one write */
+    public synchronized void appendTypeUpdates(Map<String, String> types) throws IOException {
+        if (types.isEmpty()) return;
+        List<String> lines = new ArrayList<>(types.size());
+        List<Entry> added = new ArrayList<>(types.size());
+        for (Map.Entry<String, String> t : types.entrySet()) {
+            String key = StringUtil.cleanId(t.getKey());
+            ObjectNode e = lineMapper.createObjectNode();
+            e.put("op", "type");
+            e.put("id", key);
+            e.put("type", t.getValue());
+            lines.add(lineMapper.writeValueAsString(e));
+            added.add(new Entry(key, null, t.getValue().toLowerCase()));
+        }
+        appendLines(lines, added, Map.of());
+    }
+
+    /** {@code known}: state before this batch of keys the caller already read, saving the index read */
+    private void appendLines(List<String> lines, List<Entry> added, Map<String, Transaction> known) throws IOException {
+        pending(); // make sure the cache reflects the file before extending it
+        if (log.getParent() != null) Files.createDirectories(log.getParent());
+        if (entries < 0) entries = countEntries();
+        try (BufferedWriter w = Files.newBufferedWriter(log, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (String l : lines) {
+                w.write(l);
+                w.write('\n');
+            }
+        }
+        entries += lines.size();
+        for (Entry e : added) {
+            List<Entry> forKey = pending.computeIfAbsent(e.key(), k -> new ArrayList<>());
+            if (rollup != null || classifier != null) {
+                // Delta of this entry: the row as it was before it, and as it is after it
+                Transaction before = known.containsKey(e.key())
+                        ? known.get(e.key()) : applyAll(index.read(e.key()), forKey);
+                Transaction after = apply(before == null ? null : copy(before), e);
+                if (rollup != null) rollup.apply(before, after);
+                if (classifier != null) classifier.apply(before, after);
+            }
+            forKey.add(e);
+        }
+        if (rollup != null) scheduleRollupSave();
+        if (entries >= COMPACT_THRESHOLD) compactAsync();
+    }
+
+    private void saveRollup() {
+        try {
+            rollup.save(rollupFile, RollupCube.Stamp.of(snapshot, log));
+        } catch (IOException e) {
+            // The file's stamp no longer matches the ledger, so it is rebuilt on next load
+            System.err.println("Failed to save rollup " + rollupFile + ": " + e.getMessage());
+        }
+    }
+
+    private int countEntries() throws IOException {
+        if (!Files.exists(log)) return 0;
+        try (BufferedReader r = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            int n = 0;
+            while (r.readLine() != null) n++;
+            return n;
+        }
+    }
+
+    /* ---------------- Replay ---------------- */
+
+    /** Current ledger state: snapshot contents with every log entry applied in order */
+    public synchronized List<Transaction> readAll() throws IOException {
+        List<Transaction> base = Files.exists(snapshot)
+                ? Arrays.asList(snapshotMapper.readValue(snapshot.toFile(), Transaction[].class))
+                : Collections.emptyList();
+        return replay(base);
+    }
+
+    /** Apply the log tail on top of an already loaded snapshot */
+    public synchronized List<Transaction> replay(List<Transaction> base) throws IOException {
+        if (pending().isEmpty()) return new ArrayList<>(base);
+
+        // Insertion-ordered so that snapshot order is preserved and new rows land at the end
+        Map<String, Transaction> state = new LinkedHashMap<>();
+        for (Transaction tx : base) state.put(keyOf(tx), tx);
+        for (Map.Entry<String, List<Entry>> e : pending.entrySet()) {
+            state.put(e.getKey(), applyAll(state.get(e.getKey()), e.getValue()));
+        }
+        state.values().removeIf(Objects::isNull);
+        return new ArrayList<>(state.values());
+    }
+
+    /**
+     * Pending log entries grouped by transaction key, in log order.
+     * Lets a streaming reader patch each snapshot record as it is read instead of loading the snapshot.
+     */
+    synchronized LinkedHashMap<String, List<Entry>> pendingByKey() throws IOException {
+        LinkedHashMap<String, List<Entry>> out = new LinkedHashMap<>();
+        pending().forEach((k, v) -> out.put(k, List.copyOf(v)));
+        return out;
+    }
+
+    private LinkedHashMap<String, List<Entry>> pending() throws IOException {
+        if (pending == null) {
+            pending = new LinkedHashMap<>();
+            for (Entry e : readEntries()) pending.computeIfAbsent(e.key(), k -> new ArrayList<>()).add(e);
+        }
+        return pending;
+    }
+
+    /** Apply a key's pending entries to its snapshot record (null when absent from the snapshot) */
+    static Transaction applyAll(Transaction current, List<Entry> entries) {
+        if (entries != null) for (Entry e : entries) current = apply(current, e);
+        return current;
+    }
+
+    static String keyOf(Transaction tx) {
+        return tx.getTransactionId() == null
+                ? UUID.randomUUID().toString()
+                : StringUtil.cleanId(tx.getTransactionId());
+    }
+
+    /** One decoded log line: an upsert carries {@code tx}, a reclassification carries {@code type} */
+    record Entry(String key, Transaction tx, String type) {}
+
+    private List<Entry> readEntries() throws IOException {
+        if (!Files.exists(log)) return Collections.emptyList();
+        List<Entry> out = new ArrayList<>();
+        try (BufferedReader r = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isBlank()) continue;
+                JsonNode e;
+                try {
+                    e = lineMapper.readTree(line);
+                } catch (IOException torn) {
+                    // A crash mid-append leaves at most one torn trailing line
+                    System.err.println("Skipping unreadable log entry in " + log);
+                    continue;
+                }
+                switch (e.path("op").asText()) {
+                    case "upsert" -> {
+                        Transaction tx = lineMapper.treeToValue(e.get("tx"), Transaction.class);
+                        out.add(new Entry(keyOf(tx), tx, null));
+                    }
+                    case "type" -> out.add(new Entry(StringUtil.cleanId(e.path("id").asText()), null,
+                            e.path("type").asText().toLowerCase()));
+                    default -> System.err.println("Unknown log op: " + e.path("op").asText());
+                }
+            }
+        }
+        return out;
+    }
+
+    /** Entries are cached and re-applied on every read, so the upserted row is handed out as a copy */
+    private static Transaction apply(Transaction current, Entry e) {
+        if (e.tx() == null) {
+            if (current != null) current.setTransactionType(e.type());
+            return current;
+        }
+        return shouldReplace(current, e.tx()) ? copy(e.tx()) : current;
+    }
+
+    private static Transaction copy(Transaction t) {
+        return new Transaction(t.getTransactionTime(), t.getTransactionType(), t.getCounterparty(), t.getItem(),
+                t.getIncExp(), t.getAmount(), t.getPaymentMethod(), t.getStatus(), t.getTransactionId(),
+                t.getMerchantId(), t.getNote());
+    }
+
+    /** Same rule as the old full merge: keep the existing row unless the incoming one is newer */
+    static boolean shouldReplace(Transaction existing, Transaction incoming) {
+        if (existing == null) return true;
+        LocalDateTime newTime = incoming.getTime();
+        LocalDateTime oldTime = existing.getTime();
+        return oldTime == null || (newTime != null && newTime.isAfter(oldTime));
+    }
+
+    /* ---------------- Compaction ---------------- */
+
+    /** Fold the log into a new snapshot on the background compactor thread */
+    public void compactAsync() {
+        if (!compacting.compareAndSet(false, true)) return;
+        compactor.submit(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.err.println("Ledger compaction failed: " + e.getMessage());
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    /** Rewrite the snapshot from snapshot + log and truncate the log */
+    public synchronized void compact() throws IOException {
+        if (!Files.exists(log)) return;
+        RollupCube.Stamp before = RollupCube.Stamp.of(snapshot, log);
+        List<Transaction> all = readAll();
+        AtomicFiles.write(snapshot, out -> snapshotMapper.writeValue(out, all));
+        Files.delete(log);
+        entries = 0;
+        pending = new LinkedHashMap<>();
+        // Same content, new files: carry a current rollup over instead of rebuilding it
+        if (rollup == null) rollup = RollupCube.load(rollupFile, before);
+        if (rollup != null) {
+            if (rollupSave != null) rollupSave.cancel(false);
+            rollupSave = null;
+            saveRollup();
+        }
+        System.out.println("Compacted ledger log into " + snapshot + " (" + all.size() + " transactions)");
+    }
+}
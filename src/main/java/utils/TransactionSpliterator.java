@@ -0,0 +1,77 @@
+package utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pojo.Transaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Pull-based reader over a ledger snapshot: one {@link Transaction} is bound per array element
+ * as the parser reaches it, so nothing beyond the current record is held in memory.
+ * <p>
+ * Pending entries from the append-only log are applied to each record as it is read; log-only
+ * records are emitted after the snapshot. Records rejected by the filter are dropped immediately.
+ */
+class TransactionSpliterator extends Spliterators.AbstractSpliterator<Transaction> implements Closeable {
+
+    private final JsonParser parser;
+    private final ObjectMapper mapper;
+    private final Predicate<? super Transaction> filter;
+    private final LinkedHashMap<String, List<TransactionLog.Entry>> pending;
+    private Iterator<List<TransactionLog.Entry>> tail; // log-only records, after the snapshot is drained
+
+    /**
+     * @param parser  parser positioned before the top-level array, or null when there is no snapshot
+     * @param pending log entries by key, consumed (removed) as matching snapshot records are read
+     */
+    TransactionSpliterator(JsonParser parser, ObjectMapper mapper,
+                           LinkedHashMap<String, List<TransactionLog.Entry>> pending,
+                           Predicate<? super Transaction> filter) throws IOException {
+        super(Long.MAX_VALUE, ORDERED | NONNULL);
+        this.parser = parser;
+        this.mapper = mapper;
+        this.pending = pending;
+        this.filter = filter;
+        if (parser != null && parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Ledger snapshot is not a JSON array");
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Transaction> action) {
+        try {
+            while (tail == null && parser != null && parser.nextToken() == JsonToken.START_OBJECT) {
+                Transaction tx = mapper.readValue(parser, Transaction.class);
+                tx = TransactionLog.applyAll(tx, pending.remove(TransactionLog.keyOf(tx)));
+                if (tx != null && filter.test(tx)) {
+                    action.accept(tx);
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (tail == null) tail = pending.values().iterator();
+        while (tail.hasNext()) {
+            Transaction tx = TransactionLog.applyAll(null, tail.next());
+            if (tx != null && filter.test(tx)) {
+                action.accept(tx);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (parser != null) parser.close();
+    }
+}
@@ -0,0 +1,174 @@
+package utils;
+
+import pojo.Transaction;
+import utils.AggregationEngine.Totals;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide in-memory view of the ledger, shared by every screen.
+ * <p>
+ * The ledger is loaded once and bucketed by {@link YearMonth} into a sorted map of partitions,
+ * so month and month-range queries cost O(partition) and only use the time parsed at ingest.
+ * A time-sorted {@link TimeIndex} answers arbitrary date ranges by binary search, and the
+ * bucketed ({@link #series}) and rolling ({@link #rolling}) queries aggregate only that range.
+ * Every mutation path in {@link JsonUtils} calls {@link #invalidate()}; the next query reloads.
+ */
+public final class TransactionStore {
+
+    private static final TransactionStore SHARED =
+            new TransactionStore(() -> JsonUtils.readTransactionsFromClasspath("transactionData.json"));
+
+    /** Bucket size of {@link #series}; weeks start on Monday */
+    public enum Granularity {
+        DAY, WEEK, MONTH;
+
+        /** First day of the bucket containing {@code date} */
+        public LocalDate bucketOf(LocalDate date) {
+            return switch (this) {
+                case DAY -> date;
+                case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> date.withDayOfMonth(1);
+            };
+        }
+
+        LocalDate next(LocalDate bucket) {
+            return switch (this) {
+                case DAY -> bucket.plusDays(1);
+                case WEEK -> bucket.plusWeeks(1);
+                case MONTH -> bucket.plusMonths(1);
+            };
+        }
+    }
+
+    /** Immutable loaded state; replaced as a whole on reload */
+    private record Partitions(List<Transaction> all, NavigableMap<YearMonth, List<Transaction>> byMonth,
+                              Map<String, Transaction> byId, TimeIndex byTime) {}
+
+    private final Supplier<List<Transaction>> loader;
+    private volatile Partitions partitions;
+
+    TransactionStore(Supplier<List<Transaction>> loader) {
+        this.loader = loader;
+    }
+
+    /** The store backed by {@code transactionData.json} */
+    public static TransactionStore get() {
+        return SHARED;
+    }
+
+    /* ---------------- Queries ---------------- */
+
+    /** Every transaction in ledger order */
+    public List<Transaction> all() {
+        return load().all();
+    }
+
+    /** Transactions of one calendar month */
+    public List<Transaction> byMonth(int year, int month) {
+        return load().byMonth().getOrDefault(YearMonth.of(year, month), Collections.emptyList());
+    }
+
+    /** Transactions from {@code from} to {@code to}, both months inclusive, in month order */
+    public List<Transaction> between(YearMonth from, YearMonth to) {
+        List<Transaction> out = new ArrayList<>();
+        for (List<Transaction> part : load().byMonth().subMap(from, true, to, true).values()) {
+            out.addAll(part);
+        }
+        return out;
+    }
+
+    /** Transactions from {@code from} (inclusive) to {@code to} (exclusive), in time order */
+    public List<Transaction> range(LocalDateTime from, LocalDateTime to) {
+        return load().byTime().slice(from.toEpochSecond(ZoneOffset.UTC), to.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    /** Transactions on the days {@code from}..{@code to}, both inclusive, in time order */
+    public List<Transaction> range(LocalDate from, LocalDate to) {
+        return range(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Totals per day, week or month over the days {@code from}..{@code to}, keyed by bucket start.
+     * Every bucket in the range is present (empty ones as {@link Totals#ZERO}); the first and last
+     * week or month only count the days inside the range.
+     */
+    public SortedMap<LocalDate, Totals> series(LocalDate from, LocalDate to, Granularity granularity) {
+        SortedMap<LocalDate, Totals> out = new TreeMap<>();
+        for (LocalDate b = granularity.bucketOf(from); !b.isAfter(to); b = granularity.next(b)) {
+            out.put(b, Totals.ZERO);
+        }
+        dailyTotals(from, to).forEach((day, t) ->
+                out.merge(granularity.bucketOf(day), t, AggregationEngine::plus));
+        return out;
+    }
+
+    /**
+     * For each day from {@code from} to {@code to}, the totals of the {@code days}-day window
+     * ending on (and including) that day. One range lookup and a sliding sum over daily totals.
+     */
+    public SortedMap<LocalDate, Totals> rolling(LocalDate from, LocalDate to, int days) {
+        if (days < 1) throw new IllegalArgumentException("days must be positive: " + days);
+        SortedMap<LocalDate, Totals> daily = dailyTotals(from.minusDays(days - 1), to);
+        SortedMap<LocalDate, Totals> out = new TreeMap<>();
+        Totals window = Totals.ZERO;
+        for (LocalDate d = from.minusDays(days - 1); !d.isAfter(to); d = d.plusDays(1)) {
+            window = AggregationEngine.plus(window, daily.getOrDefault(d, Totals.ZERO));
+            Totals leaving = daily.get(d.minusDays(days));
+            if (leaving != null) window = AggregationEngine.minus(window, leaving);
+            if (!d.isBefore(from)) out.put(d, window);
+        }
+        return out;
+    }
+
+    private SortedMap<LocalDate, Totals> dailyTotals(LocalDate from, LocalDate to) {
+        return AggregationEngine.aggregate(range(from, to),
+                List.of(AggregationEngine.Window.between("range", from, to)),
+                EnumSet.of(AggregationEngine.GroupBy.DAY)).window("range").byDay();
+    }
+
+    /** Transaction with this id (quotes and whitespace ignored), or null */
+    public Transaction findById(String id) {
+        return load().byId().get(StringUtil.cleanId(id));
+    }
+
+    /** Months that have at least one transaction, ascending */
+    public NavigableSet<YearMonth> months() {
+        return load().byMonth().navigableKeySet();
+    }
+
+    /* ---------------- Lifecycle ---------------- */
+
+    /** Drop the cached state; called after every mutation of the ledger */
+    public synchronized void invalidate() {
+        partitions = null;
+    }
+
+    private Partitions load() {
+        Partitions p = partitions;
+        if (p != null) return p;
+        synchronized (this) {
+            if (partitions == null) partitions = partition(loader.get());
+            return partitions;
+        }
+    }
+
+    private static Partitions partition(List<Transaction> list) {
+        NavigableMap<YearMonth, List<Transaction>> byMonth = new TreeMap<>();
+        Map<String, Transaction> byId = new HashMap<>(list.size() * 2);
+        for (Transaction t : list) {
+            if (t.getTransactionId() != null) byId.put(StringUtil.cleanId(t.getTransactionId()), t);
+            if (t.getTime() != null) byMonth.computeIfAbsent(YearMonth.from(t.getTime()), k -> new ArrayList<>()).add(t);
+        }
+        byMonth.replaceAll((k, v) -> Collections.unmodifiableList(v));
+        return new Partitions(Collections.unmodifiableList(new ArrayList<>(list)),
+                Collections.unmodifiableNavigableMap(byMonth), byId, new TimeIndex(list));
+    }
+}
@@ -0,0 +1,77 @@
+package bench;
+
+import pojo.IncExp;
+import pojo.Transaction;
+import utils.AggregationEngine;
+import utils.CalcExpense;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The billing-cycle and per-category summaries as the stream-based methods used to compute them
+ * (a min-date pass, a 7-day and a 30-day filtering pass, and a grouping pass per category; kept
+ * here as the baseline) versus one {@link AggregationEngine} scan that produces both.
+ * <p>
+ * Not a unit test; run the main method with the test classpath, optionally passing row counts
+ * (default 10000 100000 1000000). Reports the best of several timed rounds after warm-up.
+ */
+public class AggregationBenchmark {
+
+    private static final int WARMUP = 5;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{10_000, 100_000, 1_000_000}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        for (int n : sizes) {
+            List<Transaction> rows = LedgerWriteBenchmark.generate(n);
+            double streams = best(() -> {
+                streamBillingCycle(rows);
+                streamCategories(rows);
+            });
+            double engine = best(() -> CalcExpense.summarize(rows));
+            System.out.printf("%,9d rows  streams %8.2f ms  single pass %8.2f ms  (%.1fx)%n",
+                    n, streams, engine, streams / engine);
+        }
+    }
+
+    /** The previous billing-cycle summary: find the first date, then filter and sum each window */
+    static Object streamBillingCycle(List<Transaction> rows) {
+        LocalDate start = rows.stream().filter(t -> t.getTime() != null)
+                .map(t -> t.getTime().toLocalDate()).min(Comparator.naturalOrder()).orElse(null);
+        if (start == null) return Map.of();
+        return Map.of("7Days", streamWindow(rows, start, start.plusDays(6)),
+                "30Days", streamWindow(rows, start, start.plusDays(29)));
+    }
+
+    private static Map<String, Double> streamWindow(List<Transaction> rows, LocalDate from, LocalDate to) {
+        return rows.stream()
+                .filter(t -> t.getTime() != null && !t.getTime().toLocalDate().isBefore(from)
+                        && !t.getTime().toLocalDate().isAfter(to))
+                .collect(Collectors.groupingBy(Transaction::getIncExp, Collectors.summingDouble(Transaction::getAmount)));
+    }
+
+    /** The previous category summary: group and sum expense rows with collectors */
+    static Object streamCategories(List<Transaction> rows) {
+        return rows.stream()
+                .filter(t -> t.getFlow() == IncExp.EXPENSE)
+                .collect(Collectors.groupingBy(t -> t.getCategory().label(),
+                        Collectors.summingDouble(Transaction::getAmount)));
+    }
+
+    private static double best(Runnable task) {
+        for (int i = 0; i < WARMUP; i++) task.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long t0 = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best / 1e6;
+    }
+}
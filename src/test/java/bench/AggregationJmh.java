@@ -0,0 +1,45 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+import pojo.Transaction;
+import utils.AggregationEngine;
+import utils.CalcExpense;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH version of {@link AggregationBenchmark}: the stream-based billing-cycle and category
+ * summaries versus one {@link AggregationEngine} scan, on generated ledgers.
+ * <p>
+ * Run after {@code mvn test-compile} with the test classpath:
+ * {@code java -cp target/classes:target/test-classes:<deps> org.openjdk.jmh.Main bench.AggregationJmh}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AggregationJmh {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private List<Transaction> ledger;
+
+    @Setup
+    public void setUp() {
+        ledger = LedgerWriteBenchmark.generate(rows);
+    }
+
+    @Benchmark
+    public Object streams() {
+        return new Object[]{AggregationBenchmark.streamBillingCycle(ledger), AggregationBenchmark.streamCategories(ledger)};
+    }
+
+    @Benchmark
+    public AggregationEngine.Result singlePass() {
+        return CalcExpense.summarize(ledger);
+    }
+}
@@ -0,0 +1,58 @@
+package bench;
+
+import utils.IoExecutors;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Blocking-I/O fan-out on three executors: the fixed pool of 10 the chat code used to imply,
+ * the cached platform pool the classification scheduler used, and {@link IoExecutors} (virtual
+ * threads on Java 21+, the same cached pool otherwise). Each task sleeps for a simulated API
+ * round trip; wall time and peak live platform threads are reported per concurrency level.
+ * <p>
+ * Not a unit test; run the main method with the test classpath, optionally passing concurrency
+ * levels (default 100 1000 10000). Build with {@code -Pjdk21} and run on Java 21 to compare
+ * against virtual threads.
+ */
+public class ExecutorBenchmark {
+
+    private static final long LATENCY_MS = 50;
+
+    public static void main(String[] args) throws Exception {
+        int[] levels = args.length == 0 ? new int[]{100, 1_000, 10_000}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        System.out.printf("Java %d, virtual threads %s%n", Runtime.version().feature(),
+                IoExecutors.virtualThreads() ? "on" : "off");
+        System.out.printf("%-10s %-16s %10s %14s%n", "tasks", "executor", "wall ms", "peak threads");
+
+        for (int n : levels) {
+            run(n, "fixed-10", Executors.newFixedThreadPool(10));
+            run(n, "cached", IoExecutors.newPlatformExecutor("bench-"));
+            run(n, "IoExecutors", IoExecutors.newExecutor("bench-"));
+        }
+    }
+
+    private static void run(int n, String name, ExecutorService executor) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            futures.add(executor.submit(() -> {
+                Thread.sleep(LATENCY_MS);
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        long wallMs = (System.nanoTime() - start) / 1_000_000;
+        executor.shutdown();
+        System.out.printf("%-10d %-16s %10d %14d%n", n, name, wallMs, threads.getPeakThreadCount());
+    }
+}
@@ -0,0 +1,84 @@
+package bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import pojo.Transaction;
+import utils.JsonUtils;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Write throughput of the ledger snapshot: the old direct {@code FileWriter} path versus
+ * {@link JsonUtils#writeTransactionsToJson} (buffered UTF-8, fsync, atomic rename).
+ * <p>
+ * Not a unit test; run the main method from the IDE or with the test classpath, optionally
+ * passing row counts as arguments (default 10000 100000 1000000).
+ */
+public class LedgerWriteBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length == 0 ? new int[]{10_000, 100_000, 1_000_000}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        ObjectMapper legacyMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Path dir = Files.createTempDirectory("ledger-bench");
+
+        for (int n : sizes) {
+            List<Transaction> rows = generate(n);
+            Path legacy = dir.resolve("legacy-" + n + ".json");
+            Path atomic = dir.resolve("atomic-" + n + ".json");
+
+            // Warm-up so both paths run with JIT-compiled serializers
+            writeLegacy(legacyMapper, rows, legacy);
+            JsonUtils.writeTransactionsToJson(rows, atomic.toString());
+
+            long legacyNanos = Long.MAX_VALUE;
+            long atomicNanos = Long.MAX_VALUE;
+            for (int r = 0; r < ROUNDS; r++) {
+                long t0 = System.nanoTime();
+                writeLegacy(legacyMapper, rows, legacy);
+                legacyNanos = Math.min(legacyNanos, System.nanoTime() - t0);
+
+                t0 = System.nanoTime();
+                JsonUtils.writeTransactionsToJson(rows, atomic.toString());
+                atomicNanos = Math.min(atomicNanos, System.nanoTime() - t0);
+            }
+
+            long bytes = Files.size(atomic);
+            System.out.printf("%,9d rows  %6.1f MB  legacy %8.1f ms (%6.1f MB/s)  atomic+fsync %8.1f ms (%6.1f MB/s)%n",
+                    n, bytes / 1e6,
+                    legacyNanos / 1e6, bytes / 1e6 / (legacyNanos / 1e9),
+                    atomicNanos / 1e6, bytes / 1e6 / (atomicNanos / 1e9));
+            Files.deleteIfExists(legacy);
+            Files.deleteIfExists(atomic);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    /** The previous implementation: unbuffered FileWriter in the platform charset, no fsync */
+    private static void writeLegacy(ObjectMapper mapper, List<Transaction> rows, Path file) throws IOException {
+        try (FileWriter fw = new FileWriter(file.toFile())) {
+            mapper.writeValue(fw, rows);
+        }
+    }
+
+    static List<Transaction> generate(int n) {
+        String[] types = {"food", "shopping", "transportation", "entertainment", "housing"};
+        List<Transaction> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            rows.add(new Transaction(
+                    String.format("2025-%02d-%02d %02d:%02d:00", 1 + i % 12, 1 + i % 28, i % 24, i % 60),
+                    types[i % types.length], "商户" + (i % 500), "商品" + (i % 1000),
+                    i % 7 == 0 ? "收入" : "支出", (i % 10_000) / 100.0, "余额宝", "交易成功",
+                    "2025" + String.format("%024d", i), "M" + (i % 500), ""));
+        }
+        return rows;
+    }
+}
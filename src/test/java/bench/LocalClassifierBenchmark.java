@@ -0,0 +1,72 @@
+package bench;
+
+import pojo.Category;
+import pojo.Transaction;
+import utils.JsonUtils;
+import utils.LocalClassifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Throughput and accuracy of {@link LocalClassifier} against the existing ledger.
+ * <p>
+ * Accuracy is measured with 5-fold cross-validation over the classified rows: the model is
+ * trained on four folds and asked about the fifth, counting how many rows it answers locally
+ * (coverage) and how many of those answers match the stored category. The export's own
+ * transaction type is no longer in the ledger, so rules only see counterparty and item here.
+ * Not a unit test; run the main method from the IDE or with the test classpath.
+ */
+public class LocalClassifierBenchmark {
+
+    private static final int FOLDS = 5;
+
+    public static void main(String[] args) {
+        List<Transaction> ledger = new ArrayList<>();
+        for (Transaction t : JsonUtils.readTransactionsFromClasspath("transactionData.json")) {
+            if (t.getCategory() != Category.UNKNOWN) ledger.add(t);
+        }
+        if (ledger.isEmpty()) {
+            System.out.println("No classified rows in the ledger");
+            return;
+        }
+
+        int answered = 0, correct = 0;
+        for (int fold = 0; fold < FOLDS; fold++) {
+            List<Transaction> train = new ArrayList<>(), test = new ArrayList<>();
+            for (int i = 0; i < ledger.size(); i++) (i % FOLDS == fold ? test : train).add(ledger.get(i));
+            LocalClassifier lc = LocalClassifier.train(train);
+            for (Transaction t : test) {
+                Category c = lc.classify(t.getCounterparty(), t.getItem(), null);
+                if (c == null) continue;
+                answered++;
+                if (c == t.getCategory()) correct++;
+            }
+        }
+        System.out.printf("%d rows, %d-fold: answered locally %.1f%%, accuracy of local answers %.1f%%%n",
+                ledger.size(), FOLDS, answered * 100.0 / ledger.size(), answered == 0 ? 0 : correct * 100.0 / answered);
+
+        LocalClassifier lc = LocalClassifier.train(ledger);
+        long t0 = System.nanoTime();
+        long trainRounds = 0;
+        while (System.nanoTime() - t0 < 1_000_000_000L) {
+            LocalClassifier.train(ledger);
+            trainRounds++;
+        }
+        double trainSecs = (System.nanoTime() - t0) / 1e9;
+
+        int rounds = 0;
+        int sink = 0;
+        t0 = System.nanoTime();
+        while (System.nanoTime() - t0 < 2_000_000_000L) {
+            for (Transaction t : ledger) {
+                Category c = lc.classify(t.getCounterparty(), t.getItem(), null);
+                if (c != null) sink += c.ordinal();
+            }
+            rounds++;
+        }
+        double secs = (System.nanoTime() - t0) / 1e9;
+        System.out.printf("training: %,.0f rows/s; classification: %,.0f rows/s (checksum %d)%n",
+                trainRounds * ledger.size() / trainSecs, rounds * ledger.size() / secs, sink);
+    }
+}
@@ -0,0 +1,82 @@
+package bench;
+
+import pojo.Money;
+import pojo.Transaction;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Summing transaction amounts three ways: naive {@code double} addition (what the category and
+ * report sums used to do), Kahan-compensated {@code double} addition, and exact {@code long} fen
+ * addition over {@link Transaction#getAmountCents()}. Besides time, reports how far each result
+ * is from the exact {@link BigDecimal} total, in fen.
+ * <p>
+ * Not a unit test; run the main method with the test classpath, optionally passing row counts
+ * (default 10000 100000 1000000). Reports the best of several timed rounds after warm-up.
+ */
+public class MoneyBenchmark {
+
+    private static final int WARMUP = 10;
+    private static final int ROUNDS = 20;
+
+    private static volatile double sinkD;
+    private static volatile long sinkL;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{10_000, 100_000, 1_000_000}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        for (int n : sizes) {
+            List<Transaction> rows = LedgerWriteBenchmark.generate(n);
+            BigDecimal exact = BigDecimal.ZERO;
+            for (Transaction t : rows) exact = exact.add(BigDecimal.valueOf(t.getAmountCents()));
+
+            double naive = best(() -> sinkD = naive(rows));
+            double kahan = best(() -> sinkD = kahan(rows));
+            double fen = best(() -> sinkL = fen(rows));
+            System.out.printf("%,9d rows  double %7.2f ms (off %s fen)  kahan %7.2f ms (off %s fen)  fen %7.2f ms (off %s fen)%n",
+                    n, naive, drift(Money.fen(naive(rows)), exact),
+                    kahan, drift(Money.fen(kahan(rows)), exact),
+                    fen, drift(fen(rows), exact));
+        }
+    }
+
+    private static double naive(List<Transaction> rows) {
+        double sum = 0;
+        for (Transaction t : rows) sum += t.getAmount();
+        return sum;
+    }
+
+    private static double kahan(List<Transaction> rows) {
+        double sum = 0, c = 0;
+        for (Transaction t : rows) {
+            double y = t.getAmount() - c;
+            double s = sum + y;
+            c = (s - sum) - y;
+            sum = s;
+        }
+        return sum;
+    }
+
+    private static long fen(List<Transaction> rows) {
+        long sum = 0;
+        for (Transaction t : rows) sum += t.getAmountCents();
+        return sum;
+    }
+
+    private static BigDecimal drift(long fen, BigDecimal exact) {
+        return BigDecimal.valueOf(fen).subtract(exact);
+    }
+
+    private static double best(Runnable task) {
+        for (int i = 0; i < WARMUP; i++) task.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long t0 = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best / 1e6;
+    }
+}
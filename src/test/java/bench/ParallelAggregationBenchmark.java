@@ -0,0 +1,61 @@
+package bench;
+
+import pojo.Transaction;
+import utils.AggregationEngine;
+import utils.AggregationEngine.GroupBy;
+import utils.AggregationEngine.Window;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Scaling of the fork-join {@link AggregationEngine} scan over 1/2/4/8 worker threads against the
+ * sequential scan, on a billing-cycle query with every group-by.
+ * <p>
+ * Not a unit test; run the main method with the test classpath (and a large heap, e.g. -Xmx4g),
+ * optionally passing row counts (default 1000000 3000000). Reports the best of several timed
+ * rounds after warm-up; pool sizes above the machine's core count are still run but cannot scale.
+ */
+public class ParallelAggregationBenchmark {
+
+    private static final int WARMUP = 5;
+    private static final int ROUNDS = 10;
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{1_000_000, 3_000_000}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        List<Window> windows = List.of(Window.firstDays("7Days", 7), Window.firstDays("30Days", 30), Window.all("all"));
+        EnumSet<GroupBy> groupBys = EnumSet.allOf(GroupBy.class);
+        System.out.printf("%d available processors%n", Runtime.getRuntime().availableProcessors());
+
+        for (int n : sizes) {
+            List<Transaction> rows = LedgerWriteBenchmark.generate(n);
+            double sequential = best(() -> AggregationEngine.aggregate(rows::iterator, windows, groupBys));
+            System.out.printf("%,10d rows  sequential %8.2f ms%n", n, sequential);
+            for (int threads : THREADS) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    double parallel = best(() -> AggregationEngine.aggregate(rows, windows, groupBys, pool));
+                    System.out.printf("%,10d rows  %d thread%s %10.2f ms  (%.2fx)%n",
+                            n, threads, threads == 1 ? " " : "s", parallel, sequential / parallel);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    private static double best(Runnable task) {
+        for (int i = 0; i < WARMUP; i++) task.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long t0 = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best / 1e6;
+    }
+}
@@ -0,0 +1,52 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+
+    @Test
+    public void testFenRoundsToNearest() {
+        assertEquals(1999, Money.fen(19.99));
+        assertEquals(30, Money.fen(0.1 + 0.2));
+        assertEquals(-5, Money.fen(-0.05));
+        assertEquals(0, Money.fen(0));
+    }
+
+    @Test
+    public void testFormatMatchesTwoPlaceDecimal() {
+        assertEquals("0.00", Money.format(0));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("1234.50", Money.format(123_450));
+        assertEquals("-1234.50", Money.format(-123_450));
+        for (long fen : new long[]{1, 99, 100, 101, 987_654_321, -100_001}) {
+            assertEquals(String.format("%.2f", fen / 100.0), Money.format(fen));
+        }
+    }
+
+    @Test
+    public void testFormatGrouped() {
+        assertEquals("0.10", Money.formatGrouped(10));
+        assertEquals("999.99", Money.formatGrouped(99_999));
+        assertEquals("1,000.00", Money.formatGrouped(100_000));
+        assertEquals("-12,345,678.90", Money.formatGrouped(-1_234_567_890));
+        assertEquals("-92,233,720,368,547,758.08", Money.formatGrouped(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testFenSumsDoNotDrift() {
+        Transaction t = new Transaction();
+        t.setAmount(0.1);
+        double yuan = 0;
+        long fen = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            yuan += t.getAmount();
+            fen += t.getAmountCents();
+        }
+        assertNotEquals(100_000.0, yuan);
+        assertEquals(10_000_000, fen);
+        assertEquals("100000.00", Money.format(fen));
+    }
+}
@@ -0,0 +1,169 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import pojo.Category;
+import pojo.IncExp;
+import pojo.Transaction;
+import utils.AggregationEngine.GroupBy;
+import utils.AggregationEngine.Totals;
+import utils.AggregationEngine.Window;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AggregationEngineTest {
+
+    private final List<Transaction> txs = List.of(
+            tx("2025-05-10 10:00:00", "支出", "shopping", "零钱", 100),
+            tx("2025-05-10 12:00:00", "收入", "transfer accounts", "\"零钱\"", 300),
+            tx("2025-05-10 09:00:00", "支出", "food and dining", "招商银行(1234)", 50),
+            tx("2025-05-23 08:00:00", "支出", "shopping", "零钱", 150.25),
+            tx("2025-06-20 15:00:00", "收入", "transfer accounts", "零钱", 300),
+            tx("not a time", "支出", "shopping", "零钱", 9.99));
+
+    @Test
+    public void windowsShouldMatchLegacyBillingCycle() {
+        AggregationEngine.Result r = CalcExpense.summarize(txs);
+        Map<String, Map<String, Double>> legacy = CalcExpense.summarizeByBillingCycle(txs);
+
+        assertEquals(LocalDate.of(2025, 5, 10), r.start());
+        assertEquals(LocalDate.of(2025, 6, 20), r.end());
+        assertEquals(1, r.undated());
+        assertEquals(legacy.get("7Days").get("\"支出\""), r.window("7Days").total().expense(), 1e-9);
+        assertEquals(legacy.get("30Days").get("\"支出\""), r.window("30Days").total().expense(), 1e-9);
+        assertEquals(legacy.get("30Days").get("\"收入\""), r.window("30Days").total().income(), 1e-9);
+        assertEquals(LocalDate.of(2025, 6, 8), r.window("30Days").to());
+
+        // Undated rows only count towards the unbounded window
+        Totals all = r.window("all").total();
+        assertEquals(6, all.count());
+        assertEquals(31_024, all.expenseCents());
+        assertEquals(new Totals(0, 31_024, 0, 0, 4, 0), r.window("all").byIncExp().get(IncExp.EXPENSE));
+        assertEquals(26_024, r.window("all").byCategory().get(Category.SHOPPING).expenseCents());
+    }
+
+    @Test
+    public void groupBysShouldSplitPaymentMethodsAndDays() {
+        AggregationEngine.WindowResult may = AggregationEngine.aggregate(txs,
+                List.of(Window.between("may", LocalDate.of(2025, 5, 1), LocalDate.of(2025, 5, 31))),
+                EnumSet.of(GroupBy.PAYMENT_METHOD, GroupBy.DAY)).window("may");
+
+        assertEquals(4, may.total().count());
+        assertEquals(Map.of("零钱", new Totals(30_000, 25_025, 0, 1, 2, 0),
+                "招商银行(1234)", new Totals(0, 5_000, 0, 0, 1, 0)), may.byPaymentMethod(), "Quoted and bare labels merge");
+        assertEquals(List.of(LocalDate.of(2025, 5, 10), LocalDate.of(2025, 5, 23)), List.copyOf(may.byDay().keySet()));
+        assertEquals(3, may.byDay().get(LocalDate.of(2025, 5, 10)).count());
+        assertTrue(may.byCategory().isEmpty(), "Category was not requested");
+    }
+
+    @Test
+    public void emptyInputShouldGiveEmptyWindows() {
+        AggregationEngine.Result r = AggregationEngine.aggregate(List.of(),
+                List.of(Window.firstDays("7Days", 7), Window.all("all")), EnumSet.allOf(GroupBy.class));
+
+        assertNull(r.start());
+        assertEquals(Totals.ZERO, r.window("7Days").total());
+        assertTrue(r.window("all").byDay().isEmpty());
+    }
+
+    @Test
+    public void parallelScanShouldMatchSequentialScan() {
+        String[] types = {"shopping", "housing", "food and dining", "transfer accounts"};
+        String[] flows = {"支出", "收入", "不计收支"};
+        List<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            String time = i % 997 == 0 ? "bad" : String.format("20%02d-%02d-%02d 12:00:00", 20 + i % 5, 1 + i % 12, 1 + i % 28);
+            rows.add(tx(time, flows[i % 3], types[i % 4], "card" + (i % 13), (i % 5000) / 100.0));
+        }
+        List<Window> windows = List.of(Window.all("all"), Window.firstDays("30Days", 30),
+                Window.between("2022", LocalDate.of(2022, 1, 1), LocalDate.of(2022, 12, 31)));
+        EnumSet<GroupBy> groupBys = EnumSet.allOf(GroupBy.class);
+
+        AggregationEngine.Result sequential = AggregationEngine.aggregate(rows::iterator, windows, groupBys);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(sequential, AggregationEngine.aggregate(rows, windows, groupBys, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void outlierDatesShouldNotStretchTheDenseRange() {
+        List<Transaction> rows = new ArrayList<>(txs);
+        rows.add(tx("1970-01-01 00:00:00", "支出", "shopping", "零钱", 1));
+        rows.add(tx("9999-12-31 23:59:59", "收入", "housing", "零钱", 2));
+        List<Window> windows = List.of(Window.all("all"), Window.firstDays("7Days", 7),
+                Window.between("may", LocalDate.of(2025, 5, 1), LocalDate.of(2025, 5, 31)));
+        EnumSet<GroupBy> groupBys = EnumSet.allOf(GroupBy.class);
+
+        // Dense slots for 1970..9999 would need billions of array elements per key
+        AggregationEngine.Result r = AggregationEngine.aggregate(rows, windows, groupBys);
+        assertEquals(LocalDate.of(1970, 1, 1), r.start());
+        assertEquals(LocalDate.of(9999, 12, 31), r.end());
+        assertEquals(new Totals(60_200, 31_124, 0, 3, 5, 0), r.window("all").byIncExp().values().stream()
+                .reduce(Totals.ZERO, AggregationEngine::plus));
+        assertEquals(new Totals(0, 100, 0, 0, 1, 0), r.window("7Days").total());
+        assertEquals(4, r.window("may").total().count());
+        assertEquals(List.of(LocalDate.of(1970, 1, 1), LocalDate.of(2025, 5, 10), LocalDate.of(2025, 5, 23),
+                LocalDate.of(2025, 6, 20), LocalDate.of(9999, 12, 31)), List.copyOf(r.window("all").byDay().keySet()));
+        assertEquals(200, r.window("all").byCategory().get(Category.HOUSING).incomeCents());
+
+        // Chunks with different dense ranges merge to the same result
+        List<Transaction> many = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) many.add(rows.get(i % rows.size()));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(AggregationEngine.aggregate(many::iterator, windows, groupBys),
+                    AggregationEngine.aggregate(many, windows, groupBys, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void rawLabelsShouldBeCollectedInTheSameScan() {
+        List<Transaction> rows = new ArrayList<>(txs);
+        rows.add(tx("2025-05-11 10:00:00", "支出", "Gifts", "零钱", 20));
+        rows.add(tx("2025-05-12 10:00:00", "支出", "\"Gifts\"", "零钱", 10));
+        rows.add(tx("2025-05-13 10:00:00", "支出", null, "零钱", 5));
+        Transaction bare = tx("2025-05-14 10:00:00", "收入", "housing", "零钱", 1);
+        bare.setIncExp("收入");
+        rows.add(bare);
+        List<Window> windows = List.of(Window.all("all"));
+        EnumSet<GroupBy> groupBys = EnumSet.of(GroupBy.CATEGORY);
+
+        AggregationEngine.Result r = AggregationEngine.aggregate(rows, windows, groupBys);
+        assertEquals(Map.of(IncExp.EXPENSE, "\"支出\"", IncExp.INCOME, "\"收入\""), r.incExpLabels(),
+                "First spelling in ledger order");
+        assertEquals(Map.of("Gifts", new Totals(0, 3_000, 0, 0, 2, 0), "unknown", new Totals(0, 500, 0, 0, 1, 0)),
+                r.window("all").byOtherType());
+        assertEquals(3_500, r.window("all").byCategory().get(Category.UNKNOWN).expenseCents());
+
+        List<Transaction> many = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) many.add(rows.get(i % rows.size()));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(AggregationEngine.aggregate(many::iterator, windows, groupBys),
+                    AggregationEngine.aggregate(many, windows, groupBys, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Transaction tx(String time, String incExp, String type, String payment, double amount) {
+        Transaction tx = new Transaction();
+        tx.setTransactionTime(time);
+        tx.setIncExp("\"" + incExp + "\"");
+        tx.setTransactionType(type);
+        tx.setPaymentMethod(payment);
+        tx.setAmount(amount);
+        return tx;
+    }
+}
@@ -0,0 +1,42 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AtomicFilesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void shouldReplaceTargetAndLeaveNoTempFile() throws Exception {
+        Path target = dir.resolve("ledger.json");
+        Files.writeString(target, "old");
+
+        AtomicFiles.write(target, out -> out.write("新的".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("新的", Files.readString(target, StandardCharsets.UTF_8));
+        assertFalse(Files.exists(dir.resolve("ledger.json.tmp")));
+    }
+
+    @Test
+    public void failedWriteShouldKeepPreviousContent() throws Exception {
+        Path target = dir.resolve("ledger.json");
+        Files.writeString(target, "old");
+
+        assertThrows(IOException.class, () -> AtomicFiles.write(target, out -> {
+            out.write("partial".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("disk full");
+        }));
+
+        assertEquals("old", Files.readString(target));
+        assertFalse(Files.exists(dir.resolve("ledger.json.tmp")));
+    }
+}
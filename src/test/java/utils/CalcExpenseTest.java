@@ -34,6 +34,46 @@ public class CalcExpenseTest {
         assertEquals(600.0, stats30.get("\"收入\""), 0.001);
     }
 
+    @Test
+    public void testSummarizeExpenseByCategoryUsesTypedFields() {
+        List<Transaction> transactions = new ArrayList<>();
+
+        Transaction quoted = makeTransaction("2025-05-10 10:00:00", "支出", 75);
+        quoted.setTransactionType("\"Shopping\"");
+        Transaction plain = new Transaction("2025-05-11 10:00:00", "shopping", "cp", "item", "支出",
+                25, "pay", "ok", "1", "2", "");
+        Transaction income = new Transaction("2025-05-12 10:00:00", "transfer accounts", "cp", "item", "收入",
+                300, "pay", "ok", "3", "4", "");
+        transactions.add(quoted);
+        transactions.add(plain);
+        transactions.add(income);
+
+        Map<String, Object> result = CalcExpense.summarizeExpenseByCategory(transactions);
+        assertEquals("100.00", result.get("shopping Amount"));
+        assertEquals("100.00%", result.get("shopping Percentage"));
+        assertFalse(result.containsKey("transfer accounts Amount"), "Income should not count as expense");
+    }
+
+    @Test
+    public void testSummarizeExpenseByCategoryKeepsTypesOutsideTheEnum() {
+        List<Transaction> transactions = new ArrayList<>();
+        transactions.add(new Transaction("2025-05-10 10:00:00", "\"Gifts\"", "cp", "item", "支出",
+                30, "pay", "ok", "1", "2", ""));
+        transactions.add(new Transaction("2025-05-11 10:00:00", "Gifts", "cp", "item", "支出",
+                20, "pay", "ok", "3", "4", ""));
+        transactions.add(new Transaction("2025-05-12 10:00:00", "Unknown", "cp", "item", "支出",
+                25, "pay", "ok", "5", "6", ""));
+        transactions.add(new Transaction("2025-05-13 10:00:00", "shopping", "cp", "item", "支出",
+                25, "pay", "ok", "7", "8", ""));
+
+        Map<String, Object> result = CalcExpense.summarizeExpenseByCategory(transactions);
+        assertEquals("50.00", result.get("Gifts Amount"));
+        assertEquals("50.00%", result.get("Gifts Percentage"));
+        assertEquals("25.00", result.get("unknown Amount"));
+        assertEquals("25.00", result.get("shopping Amount"));
+        assertEquals(6, result.size());
+    }
+
     /**
      * Helper method to construct a Transaction object
      */
@@ -0,0 +1,75 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassificationCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void fingerprintShouldIgnoreCaseSpacingAndOrderNumbers() {
+        assertEquals(ClassificationCache.fingerprint("美团", "美团订单-20250301123456", "商户消费"),
+                ClassificationCache.fingerprint("\"美团\" ", "美团订单-20250411987654", "商户消费"));
+        assertNotEquals(ClassificationCache.fingerprint("美团", "外卖", "商户消费"),
+                ClassificationCache.fingerprint("滴滴出行", "快车", "商户消费"));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedAndCountHits() {
+        ClassificationCache cache = new ClassificationCache(dir.resolve("cache.json"), 2, Duration.ofDays(1),
+                Clock.systemUTC());
+        cache.put("a", "food and dining");
+        cache.put("b", "transportation");
+        assertEquals("food and dining", cache.get("a")); // "b" is now least recently used
+        cache.put("c", "shopping");
+
+        assertNull(cache.get("b"));
+        assertEquals("shopping", cache.get("c"));
+        ClassificationCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.evictions());
+        assertEquals(2, stats.size());
+    }
+
+    @Test
+    public void shouldExpireEntriesAndPersistAcrossInstances() {
+        Path file = dir.resolve("cache.json");
+        Clock t0 = Clock.fixed(Instant.parse("2025-03-01T00:00:00Z"), ZoneOffset.UTC);
+        ClassificationCache cache = new ClassificationCache(file, 100, Duration.ofDays(30), t0);
+        cache.put("a", "housing");
+        cache.save();
+
+        ClassificationCache reloaded = new ClassificationCache(file, 100, Duration.ofDays(30), t0);
+        assertEquals("housing", reloaded.get("a"));
+
+        Clock later = Clock.offset(t0, Duration.ofDays(31));
+        assertNull(new ClassificationCache(file, 100, Duration.ofDays(30), later).get("a"));
+    }
+
+    @Test
+    public void hitsShouldBePersistedAsRecencyOrder() {
+        Path file = dir.resolve("cache.json");
+        ClassificationCache cache = new ClassificationCache(file, 2, Duration.ofDays(1), Clock.systemUTC());
+        cache.put("a", "food and dining");
+        cache.put("b", "transportation");
+        cache.save();
+        assertEquals("food and dining", cache.get("a")); // only reorders: "b" is now least recently used
+        cache.save();
+
+        ClassificationCache reloaded = new ClassificationCache(file, 2, Duration.ofDays(1), Clock.systemUTC());
+        reloaded.put("c", "shopping");
+        assertEquals("food and dining", reloaded.get("a"));
+        assertNull(reloaded.get("b"));
+    }
+}
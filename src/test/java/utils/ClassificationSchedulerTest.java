@@ -0,0 +1,136 @@
+package utils;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassificationSchedulerTest {
+
+    @Test
+    public void shouldRetryThrottledCallsAgainstMockServer() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        // Every third request is throttled
+        HttpServer server = startMockApi(() -> requests.incrementAndGet() % 3 == 1 ? 429 : 200);
+        try {
+            ClassificationScheduler scheduler = new ClassificationScheduler(1000, 100, 4, 16, 5, 5, 50);
+            List<CompletableFuture<String>> calls = new ArrayList<>();
+            for (int i = 0; i < 20; i++) calls.add(scheduler.submit(() -> DeepSeek.complete("system", "row", "test-key")));
+            for (CompletableFuture<String> c : calls) assertEquals("shopping", c.join());
+
+            ClassificationScheduler.Stats stats = scheduler.stats();
+            assertEquals(20, stats.completed());
+            assertTrue(stats.retries() > 0, "429s should have been retried");
+            assertEquals(stats.retries(), stats.throttled());
+            assertEquals(0, stats.failed());
+            assertEquals(0, stats.inFlight());
+            assertEquals(20 + stats.retries(), requests.get());
+        } finally {
+            System.clearProperty(DeepSeek.API_URL_PROPERTY);
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldNotRetryClientErrors() throws Exception {
+        HttpServer server = startMockApi(() -> 400);
+        try {
+            ClassificationScheduler scheduler = new ClassificationScheduler(1000, 100, 4, 16, 5, 5, 50);
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> scheduler.submit(() -> DeepSeek.complete("system", "row", "test-key")).join());
+
+            assertInstanceOf(ClassificationScheduler.HttpStatusException.class, e.getCause());
+            assertEquals(0, scheduler.stats().retries());
+            assertEquals(1, scheduler.stats().failed());
+        } finally {
+            System.clearProperty(DeepSeek.API_URL_PROPERTY);
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldHalveConcurrencyOnThrottleAndRateLimit() {
+        ClassificationScheduler scheduler = new ClassificationScheduler(20, 1, 8, 16, 3, 1, 1);
+        AtomicInteger attempts = new AtomicInteger();
+        scheduler.submit(() -> {
+            if (attempts.incrementAndGet() == 1) throw new ClassificationScheduler.HttpStatusException(429, "slow down", 0);
+            return "ok";
+        }).join();
+        assertEquals(4, scheduler.stats().concurrencyLimit(), "8 halved to 4, then +1/4");
+
+        // 20 calls/s with no burst: six calls need at least five refill intervals of 50 ms
+        long t0 = System.nanoTime();
+        List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 6; i++) calls.add(scheduler.submit(() -> 1));
+        calls.forEach(CompletableFuture::join);
+        assertTrue(System.nanoTime() - t0 >= 200_000_000L, "Token bucket should pace the calls");
+    }
+
+    @Test
+    public void shouldQueueJobsInsteadOfStartingAThreadEach() {
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newCachedThreadPool(r -> {
+            threads.incrementAndGet();
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+        ClassificationScheduler scheduler = new ClassificationScheduler(10_000, 10_000, 2, 4, 0, 1, 1, executor);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            calls.add(scheduler.submit(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                return 1;
+            }));
+        }
+        calls.forEach(CompletableFuture::join);
+
+        assertTrue(peak.get() <= 4, "At most maxConcurrency calls run at once, saw " + peak.get());
+        // A finishing thread may not be idle yet when the next job is admitted, hence the slack
+        assertTrue(threads.get() <= 8, "Queued jobs must not each get a thread, created " + threads.get());
+        executor.shutdown();
+    }
+
+    private interface Status {
+        int next();
+    }
+
+    private static HttpServer startMockApi(Status status) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/chat/completions", ex -> {
+            ex.getRequestBody().readAllBytes();
+            int code = status.next();
+            byte[] body = (code == 200 ? "{\"choices\":[{\"message\":{\"content\":\"shopping\"}}]}" : "{\"error\":\"busy\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().add("Content-Type", "application/json");
+            ex.sendResponseHeaders(code, body.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        System.setProperty(DeepSeek.API_URL_PROPERTY,
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/chat/completions");
+        return server;
+    }
+}
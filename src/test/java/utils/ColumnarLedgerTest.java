@@ -0,0 +1,77 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pojo.Transaction;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarLedgerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void shouldRoundTripTransactions() throws Exception {
+        List<Transaction> list = List.of(
+                new Transaction("2025-03-05 02:28:22", "entertainment", "杭州企鹅科技有限公司", "企鹅共享", "支出",
+                        0.03, "工商银行储蓄卡(0403)", "交易成功", "2025030523001482391420276859", "1104", ""),
+                new Transaction("2025-03-11 18:35:07", null, "达美乐", "Dominos", "收入",
+                        59.9, "零钱", "支付成功", "42000026", "1282", "/"));
+        Path file = dir.resolve("transactionData.col");
+        ColumnarLedger.write(list, file);
+
+        ColumnarLedger ledger = ColumnarLedger.open(file);
+        assertEquals(2, ledger.size());
+        assertEquals(5990, ledger.amountCents(1));
+        assertEquals(-1, ledger.code(ColumnarLedger.Dict.TRANSACTION_TYPE, 1));
+        assertEquals(list, ledger.toTransactions());
+    }
+
+    @Test
+    public void columnScansShouldMatchListSummaries() throws Exception {
+        List<Transaction> list = List.of(
+                makeTransaction("2025-05-10 10:00:00", "支出", "shopping", 100),
+                makeTransaction("2025-05-10 12:00:00", "收入", "transfer accounts", 300),
+                makeTransaction("2025-05-16 23:59:59", "支出", "housing", 50.25),
+                makeTransaction("2025-05-23 08:00:00", "支出", "shopping", 150),
+                makeTransaction("2025-05-24 08:00:00", "支出", "Gifts", 20));
+        Path file = dir.resolve("transactionData.col");
+        ColumnarLedger.write(list, file);
+        ColumnarLedger ledger = ColumnarLedger.open(file);
+
+        assertEquals(CalcExpense.summarizeByBillingCycle(list), CalcExpense.summarizeByBillingCycle(ledger));
+        assertEquals(CalcExpense.summarizeExpenseByCategory(list), CalcExpense.summarizeExpenseByCategory(ledger));
+    }
+
+    @Test
+    public void rewriteShouldReplaceTheFileWithoutTouchingAnOpenMapping() throws Exception {
+        List<Transaction> before = List.of(
+                makeTransaction("2025-05-10 10:00:00", "支出", "shopping", 100),
+                makeTransaction("2025-05-11 10:00:00", "支出", "housing", 20));
+        Path file = dir.resolve("transactionData.col");
+        ColumnarLedger.write(before, file);
+        ColumnarLedger old = ColumnarLedger.open(file);
+
+        ColumnarLedger.write(List.of(makeTransaction("2025-05-12 10:00:00", "收入", "transfer accounts", 7)), file);
+
+        assertEquals(2, old.size(), "The old mapping still sees the complete old file");
+        assertEquals(2000, old.amountCents(1));
+        assertEquals("housing", old.get(1).getTransactionType());
+        assertEquals(1, ColumnarLedger.open(file).size());
+        assertFalse(Files.exists(dir.resolve("transactionData.col.tmp")));
+    }
+
+    private Transaction makeTransaction(String time, String incExp, String type, double amount) {
+        Transaction tx = new Transaction();
+        tx.setTransactionTime(time);
+        tx.setIncExp("\"" + incExp + "\"");
+        tx.setTransactionType(type);
+        tx.setAmount(amount);
+        return tx;
+    }
+}
@@ -0,0 +1,69 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversationContextTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /** A legacy session (frozen system messages) followed by {@code turns} user/assistant pairs of ~100 tokens each */
+    private ArrayNode history(int turns) {
+        ArrayNode h = mapper.createArrayNode();
+        h.addObject().put("role", "system").put("content", "old prompt");
+        h.addObject().put("role", "system").put("content", "Total assets: 1.00 yuan");
+        for (int i = 0; i < turns; i++) {
+            h.addObject().put("role", "user").put("content", "question " + i + " " + "x".repeat(380));
+            h.addObject().put("role", "assistant").put("content", "answer " + i + " " + "y".repeat(380));
+        }
+        return h;
+    }
+
+    @Test
+    void windowKeepsNewestTurnsWithinBudgetAndFreshContext() {
+        ConversationContext ctx = new ConversationContext(1000, 500);
+        ArrayNode h = history(20);
+
+        ConversationContext.Window w = ctx.window(h, "prompt", "Total assets: 99.00 yuan");
+        ArrayNode sent = w.messages();
+
+        assertTrue(w.tokens() <= 1000, "tokens " + w.tokens());
+        assertEquals("Total assets: 99.00 yuan", sent.get(1).path("content").asText());
+        for (int i = 2; i < sent.size(); i++) assertNotEquals("system", sent.get(i).path("role").asText());
+        assertTrue(sent.get(sent.size() - 1).path("content").asText().startsWith("answer 19"));
+        assertTrue(sent.size() - 2 < 40, "Older turns should be dropped");
+        assertEquals(h.size() - (sent.size() - 2), w.firstKept());
+    }
+
+    @Test
+    void evictedTurnsAreSummarizedOnceAndSummaryIsSent() {
+        ConversationContext ctx = new ConversationContext(1000, 500);
+        ArrayNode h = history(20);
+        ConversationContext.Window w = ctx.window(h, "prompt", "ctx");
+
+        List<JsonNode> evicted = ctx.evicted(h, w);
+        assertEquals(w.firstKept() - 2, evicted.size(), "Every turn before the window, none of the system messages");
+
+        h.add(ConversationContext.summaryMessage("User saves 20% of income.", w.firstKept()));
+        ConversationContext.Window next = ctx.window(h, "prompt", "ctx");
+
+        assertTrue(next.messages().get(2).path("content").asText().contains("User saves 20% of income."));
+        assertTrue(ctx.evicted(h, next).isEmpty(), "Nothing new to summarize yet");
+    }
+
+    @Test
+    void shortSessionsAreSentWhole() {
+        ConversationContext ctx = new ConversationContext(4000, 1000);
+        ArrayNode h = history(3);
+        ConversationContext.Window w = ctx.window(h, "prompt", "ctx");
+
+        assertEquals(2 + 6, w.messages().size());
+        assertTrue(ctx.evicted(h, w).isEmpty());
+    }
+}
@@ -0,0 +1,59 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pojo.Transaction;
+
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvImporterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void smallChunksShouldMatchSingleChunkParse() throws Exception {
+        // The bundled WeChat export; looked up by listing since its file name is not ASCII
+        Path wechatCsv;
+        try (Stream<Path> files = Files.list(Paths.get("src/main/resources/data/csv"))) {
+            wechatCsv = files.filter(f -> f.toString().endsWith(".csv")).findFirst().orElseThrow();
+        }
+        List<Transaction> whole = CsvImporter.DEFAULT.parse(wechatCsv);
+        List<Transaction> chunked = new CsvImporter(CsvImporter.BOM_UTF8_OR_GBK, 256).parse(wechatCsv);
+
+        assertEquals(60, whole.size());
+        assertEquals(whole, chunked);
+        Transaction first = whole.get(0);
+        assertEquals("2025-03-24 13:14:10", first.getTransactionTime());
+        assertEquals("麦当劳", first.getCounterparty());
+        assertEquals(33.5, first.getAmount());
+        assertEquals("4200002635202503247357723190", first.getTransactionId());
+    }
+
+    @Test
+    public void shouldDetectGbkAlipayExportFromContent() throws Exception {
+        Path csv = dir.resolve("export.csv");
+        Files.writeString(csv, String.join("\n",
+                "支付宝交易明细",
+                "交易时间,交易分类,交易对方,对方账号,商品说明,收/支,金额,收/付款方式,交易状态,交易订单号,商家订单号,备注,",
+                "2025-03-01 12:00:00,餐饮美食,食堂,/,午饭,支出,12.50,余额宝,交易成功,2025030122001,T1,,",
+                "2025-03-02 09:30:00,转账红包,张三,z***@qq.com,\"红包,生日\",收入,88.00,余额,交易成功,2025030222002,,,"),
+                Charset.forName("GBK"));
+
+        List<Transaction> rows = CsvImporter.DEFAULT.parse(csv);
+
+        assertEquals(2, rows.size());
+        assertEquals("午饭", rows.get(0).getItem());
+        assertEquals(12.5, rows.get(0).getAmount());
+        assertEquals("红包,生日", rows.get(1).getItem());
+        assertEquals("收入", rows.get(1).getIncExp());
+        assertEquals("2025030222002", rows.get(1).getTransactionId());
+    }
+}
@@ -1,11 +1,29 @@
 package utils;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.Test;
+import pojo.Transaction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class DeepSeekTest {
 
+    private static final AtomicInteger lastRequestMessages = new AtomicInteger();
+
     @Test
     public void testChatReturnsMessageOrError() {
         // Test condition: sessionId is valid, userInput is meaningful
@@ -18,4 +36,169 @@ public class DeepSeekTest {
 
         // Additional assertions can be added, e.g., check if response contains keywords like "recommendation" (optional)
     }
+
+    @Test
+    public void completionsShouldReusePooledConnection() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startMockApi(requests, "shopping");
+        try {
+            HttpMetrics.Stats before = DeepSeek.httpStats();
+            ArrayNode msgs = new ObjectMapper().createArrayNode();
+            for (int i = 0; i < 5; i++) {
+                assertEquals("shopping", DeepSeek.doCompletion(msgs, "test-key"));
+            }
+            HttpMetrics.Stats after = DeepSeek.httpStats();
+
+            assertEquals(5, requests.get());
+            assertEquals(5, after.calls() - before.calls());
+            assertEquals(1, after.connectionsOpened() - before.connectionsOpened(), "Keep-alive should reuse one connection");
+            assertEquals(4, after.connectionsReused() - before.connectionsReused());
+        } finally {
+            System.clearProperty(DeepSeek.API_URL_PROPERTY);
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void packBatchesShouldRespectBatchSize() {
+        ObjectMapper mapper = new ObjectMapper();
+        List<Map.Entry<String, JsonNode>> rows = new ArrayList<>();
+        for (int i = 0; i < 2 * DeepSeek.BATCH_SIZE + 7; i++) {
+            rows.add(Map.entry("id" + i, mapper.createObjectNode().put("counterparty", "美团").put("item", "外卖")));
+        }
+        List<List<Map.Entry<String, JsonNode>>> batches = DeepSeek.packBatches(rows);
+
+        assertEquals(3, batches.size());
+        assertEquals(7, batches.get(2).size());
+        assertEquals(rows.size(), batches.stream().mapToInt(List::size).sum());
+    }
+
+    @Test
+    public void classifyBatchShouldReturnOnlyAnsweredRows() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startMockApi(requests, "```json\n{\"1\": \"Shopping\", \"3\": \"food and dining\"}\n```");
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+            List<Map.Entry<String, JsonNode>> batch = List.of(
+                    Map.entry("a", mapper.createObjectNode().put("item", "衣服")),
+                    Map.entry("b", mapper.createObjectNode().put("item", "?")),
+                    Map.entry("c", mapper.createObjectNode().put("item", "麦当劳")));
+
+            Map<String, String> types = DeepSeek.classifyBatch(batch, "test-key");
+
+            assertEquals(1, requests.get(), "The whole batch should take one call");
+            assertEquals(Map.of("a", "shopping", "c", "food and dining"), types);
+        } finally {
+            System.clearProperty(DeepSeek.API_URL_PROPERTY);
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void singleRowClassificationShouldBeStateless() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startMockApi(requests, "Transportation.");
+        try {
+            JsonNode row = new ObjectMapper().createObjectNode().put("counterparty", "某公司").put("item", "共享");
+
+            assertEquals("unknown", DeepSeek.classifySingle(row, ""), "No key: no call at all");
+            assertEquals(0, requests.get());
+            assertEquals("transportation", DeepSeek.classifySingle(row, "test-key"));
+            assertEquals("transportation", DeepSeek.classifySingle(row, "test-key"));
+            assertEquals(2, requests.get());
+            assertEquals(2, lastRequestMessages.get(), "Only system prompt + row, no session history");
+        } finally {
+            System.clearProperty(DeepSeek.API_URL_PROPERTY);
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void failedClassificationShouldKeepTheExportType() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/chat/completions", ex -> {
+            requests.incrementAndGet();
+            ex.getRequestBody().readAllBytes();
+            byte[] body = "{\"error\":\"bad request\"}".getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(400, body.length); // not retryable
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        System.setProperty(DeepSeek.API_URL_PROPERTY,
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/chat/completions");
+        try {
+            // Symbols neither the cache, the rules nor the ledger model know
+            Transaction tx = new Transaction();
+            tx.setTransactionId("failed-call-" + System.nanoTime());
+            tx.setCounterparty("ⓠⓡⓢ");
+            tx.setItem("ⓣⓤⓥ");
+            tx.setTransactionType("商户消费");
+            List<Double> progress = new CopyOnWriteArrayList<>();
+
+            DeepSeek.classifyTransactions(List.of(tx), "test-key", progress::add);
+
+            assertEquals(1, requests.get(), "A failed batch is not retried row by row");
+            assertEquals("商户消费", tx.getTransactionType());
+            assertEquals(1.0, progress.get(progress.size() - 1), 1e-9, "Failed rows still count as done");
+        } finally {
+            System.clearProperty(DeepSeek.API_URL_PROPERTY);
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void streamedCompletionShouldForwardDeltasInOrder() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/chat/completions", ex -> {
+            boolean stream = new ObjectMapper().readTree(ex.getRequestBody()).path("stream").asBoolean();
+            ex.getResponseHeaders().add("Content-Type", "text/event-stream");
+            ex.sendResponseHeaders(stream ? 200 : 400, 0);
+            try (OutputStream out = ex.getResponseBody()) {
+                for (String delta : List.of("Save ", "20%", " of income.")) {
+                    ObjectNode chunk = new ObjectMapper().createObjectNode();
+                    chunk.putArray("choices").addObject().putObject("delta").put("content", delta);
+                    out.write(("data: " + chunk + "\n\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+                out.write(": keep-alive\n\ndata: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+        System.setProperty(DeepSeek.API_URL_PROPERTY,
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/chat/completions");
+        try {
+            List<String> tokens = new ArrayList<>();
+            String reply = DeepSeek.doCompletionStream(new ObjectMapper().createArrayNode(), "test-key", tokens::add);
+
+            assertEquals(List.of("Save ", "20%", " of income."), tokens);
+            assertEquals("Save 20% of income.", reply);
+        } finally {
+            System.clearProperty(DeepSeek.API_URL_PROPERTY);
+            server.stop(0);
+        }
+    }
+
+    /** Local stand-in for the completions endpoint, answering every call with {@code content} */
+    private static HttpServer startMockApi(AtomicInteger requests, String content) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/chat/completions", ex -> {
+            requests.incrementAndGet();
+            lastRequestMessages.set(new ObjectMapper().readTree(ex.getRequestBody()).path("messages").size());
+            ObjectNode rsp = new ObjectMapper().createObjectNode();
+            rsp.putArray("choices").addObject().putObject("message").put("content", content);
+            byte[] body = rsp.toString().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().add("Content-Type", "application/json");
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        System.setProperty(DeepSeek.API_URL_PROPERTY,
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/chat/completions");
+        return server;
+    }
 }
@@ -0,0 +1,23 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IoExecutorsTest {
+
+    @Test
+    void runsTasksOnNamedDaemonThreads() throws Exception {
+        ExecutorService executor = IoExecutors.newExecutor("test-io-");
+        Thread t = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+        assertTrue(t.getName().startsWith("test-io-"), t.getName());
+        // Platform threads must not keep the JVM alive; virtual threads are always daemon
+        assertTrue(t.isDaemon());
+        assertEquals(IoExecutors.virtualThreads(), Runtime.version().feature() >= 21
+                && Boolean.parseBoolean(System.getProperty("io.virtualThreads", "true")));
+        executor.shutdown();
+    }
+}
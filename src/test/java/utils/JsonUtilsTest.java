@@ -24,6 +24,23 @@ public class JsonUtilsTest {
         assertEquals("2025030523001482391420276859", result.get(0).getTransactionId());
     }
 
+    @Test
+    public void streamingReadShouldMatchFullRead() {
+        List<Transaction> all = JsonUtils.readTransactionsFromClasspath("transactionData.json");
+        long expected = all.stream().filter(t -> "收入".equals(t.getIncExp())).count();
+
+        List<Transaction> income = JsonUtils.findTransactions(t -> "收入".equals(t.getIncExp()));
+        assertEquals(expected, income.size());
+        assertTrue(income.stream().allMatch(t -> "收入".equals(t.getIncExp())));
+    }
+
+    @Test
+    public void streamingReadShouldFindSingleRecord() {
+        List<Transaction> result = JsonUtils.findTransactions(
+                t -> "2025030523001482391420276859".equals(t.getTransactionId()));
+        assertEquals(1, result.size());
+    }
+
     @Test
     public void shouldHandleIOExceptionWhenDirectoryDoesNotExist() {
         List<Transaction> list = List.of(new Transaction());
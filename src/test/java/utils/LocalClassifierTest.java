@@ -0,0 +1,63 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import pojo.Category;
+import pojo.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalClassifierTest {
+
+    @Test
+    public void rulesShouldAnswerWithoutTraining() {
+        LocalClassifier lc = LocalClassifier.train(List.of());
+
+        assertEquals(Category.TRANSPORTATION, lc.classify("滴滴出行", "快车订单", "商户消费"));
+        assertEquals(Category.TRANSFER_ACCOUNTS, lc.classify("张三", "/", "转账"));
+        assertEquals(Category.ENTERTAINMENT, lc.classify("Valve", "Steam Purchase 16671", "商户消费"));
+        assertNull(lc.classify("多点生活", "订单：873908586260", "商户消费"), "No rule and no model: escalate");
+    }
+
+    @Test
+    public void modelShouldAnswerConfidentRowsAndEscalateAmbiguousOnes() {
+        List<Transaction> ledger = new ArrayList<>();
+        for (int i = 0; i < 15; i++) ledger.add(tx("多点生活", "订单：87" + i + "908586260", "food and dining"));
+        for (int i = 0; i < 6; i++) ledger.add(tx("共享平台", "共享", "entertainment"));
+        for (int i = 0; i < 5; i++) ledger.add(tx("共享平台", "共享", "transportation"));
+        LocalClassifier lc = LocalClassifier.train(ledger);
+
+        assertEquals(Category.FOOD_AND_DINING, lc.classify("多点生活", "订单：999999", "商户消费"));
+        LocalClassifier.Prediction ambiguous = lc.predict("共享平台", "共享", "商户消费");
+        assertEquals("history", ambiguous.source());
+        assertTrue(ambiguous.confidence() < LocalClassifier.DEFAULT_THRESHOLD);
+        assertNull(lc.classify("共享平台", "共享", "商户消费"));
+    }
+
+    @Test
+    public void rulesContradictedByTheLedgerShouldStopAnswering() {
+        List<Transaction> ledger = new ArrayList<>();
+        for (String name : List.of("一饭堂", "二饭堂", "三饭堂", "四饭堂", "五饭堂", "六饭堂", "七饭堂", "八饭堂")) {
+            ledger.add(tx(name + "超市", "/", "shopping"));
+        }
+        LocalClassifier lc = LocalClassifier.train(ledger);
+
+        // The dining keyword matches first, but this user files these rows under shopping
+        LocalClassifier.Prediction p = lc.predict("九饭堂超市", "/", "商户消费");
+        assertTrue(p == null || !"rule".equals(p.source()), String.valueOf(p));
+        assertNotEquals(Category.FOOD_AND_DINING, lc.classify("九饭堂超市", "/", "商户消费"));
+
+        lc.apply(null, tx("滴滴出行", "快车", "transportation"));
+        assertEquals(Category.TRANSPORTATION, lc.classify("滴滴出行", "快车订单", "商户消费"));
+    }
+
+    private static Transaction tx(String counterparty, String item, String type) {
+        Transaction t = new Transaction();
+        t.setCounterparty(counterparty);
+        t.setItem(item);
+        t.setTransactionType(type);
+        return t;
+    }
+}
@@ -0,0 +1,110 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pojo.Category;
+import pojo.Transaction;
+import utils.AggregationEngine.Totals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RollupCubeTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void queriesShouldMatchAFullScan() {
+        List<Transaction> txs = List.of(
+                tx("A", "2025-03-01 10:00:00", "shopping", "支出", "零钱", 10),
+                tx("B", "2025-03-01 18:00:00", "shopping", "支出", "\"零钱\"", 5.5),
+                tx("C", "2025-03-20 08:00:00", "transfer accounts", "收入", "招商银行(1234)", 300),
+                tx("D", "2025-04-02 12:00:00", "housing", "支出", "零钱", 1200),
+                tx("E", "bad time", "housing", "支出", "零钱", 99));
+        RollupCube cube = RollupCube.of(txs);
+        LocalDate from = LocalDate.of(2025, 3, 1), to = LocalDate.of(2025, 3, 31);
+        AggregationEngine.WindowResult march = AggregationEngine.aggregate(txs,
+                List.of(AggregationEngine.Window.between("m", from, to)),
+                EnumSet.of(AggregationEngine.GroupBy.PAYMENT_METHOD, AggregationEngine.GroupBy.DAY)).window("m");
+
+        assertEquals(march.total(), cube.month(YearMonth.of(2025, 3)));
+        assertEquals(march.total(), cube.total(from, to));
+        assertEquals(march.byPaymentMethod(), cube.byPaymentMethod(from, to));
+        assertEquals(march.byDay(), cube.byDay(from, to));
+        assertEquals(new Totals(30_000, 121_550, 0, 1, 3, 0), cube.year(2025), "Undated rows are not in the cube");
+        assertEquals(120_000, cube.byCategory(YearMonth.of(2025, 4), YearMonth.of(2025, 4))
+                .get(Category.HOUSING).expenseCents());
+    }
+
+    @Test
+    public void ledgerUpdatesShouldKeepTheCubeCurrentAndPersisted() throws Exception {
+        Path snapshot = dir.resolve("transactionData.json");
+        JsonUtils.writeTransactionsToJson(List.of(tx("A", "2025-03-01 10:00:00", "shopping", "支出", "零钱", 10)),
+                snapshot.toString());
+        TransactionLog log = new TransactionLog(snapshot);
+        YearMonth march = YearMonth.of(2025, 3);
+        assertEquals(1000, log.rollup().month(march).expenseCents());
+
+        log.upsert(List.of(tx("B", "2025-03-02 10:00:00", "housing", "支出", "零钱", 20),
+                tx("A", "2025-03-05 10:00:00", "shopping", "支出", "零钱", 15)));   // newer A replaces the old one
+        log.appendTypeUpdates(Map.of("B", "entertainment"));
+
+        Map<Category, Totals> byCategory = log.rollup().byCategory(march, march);
+        assertEquals(1500, byCategory.get(Category.SHOPPING).expenseCents());
+        assertEquals(2000, byCategory.get(Category.ENTERTAINMENT).expenseCents());
+        assertNull(byCategory.get(Category.HOUSING), "Reclassification moves the row out of its old cell");
+        assertEquals(List.of(LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 5)),
+                List.copyOf(log.rollup().byDay(march.atDay(1), march.atEndOfMonth()).keySet()));
+
+        // Appends update the cube in memory; the file is written back after a quiet period
+        RollupCube.Stamp stamp = RollupCube.Stamp.of(snapshot, log.getLogPath());
+        assertNull(RollupCube.load(log.getRollupPath(), stamp), "No rewrite per append");
+        log.flushRollup();
+        assertNotNull(RollupCube.load(log.getRollupPath(), stamp));
+
+        // A fresh log loads the persisted cube, which matches a rebuild from the ledger
+        RollupCube rebuilt = RollupCube.of(log.readAll());
+        TransactionLog reopened = new TransactionLog(snapshot);
+        assertEquals(rebuilt.byCategory(march, march), reopened.rollup().byCategory(march, march));
+
+        // Compaction rewrites the files but not the content; the cube survives it
+        reopened.compact();
+        assertEquals(rebuilt.byCategory(march, march),
+                new TransactionLog(snapshot).rollup().byCategory(march, march));
+    }
+
+    @Test
+    public void staleFileShouldBeIgnored() throws Exception {
+        Path snapshot = dir.resolve("transactionData.json");
+        JsonUtils.writeTransactionsToJson(List.of(tx("A", "2025-03-01 10:00:00", "shopping", "支出", "零钱", 10)),
+                snapshot.toString());
+        new TransactionLog(snapshot).rollup();
+        Path rollupFile = new TransactionLog(snapshot).getRollupPath();
+        assertTrue(Files.exists(rollupFile));
+
+        // Ledger rewritten behind the cube's back
+        JsonUtils.writeTransactionsToJson(List.of(tx("A", "2025-03-01 10:00:00", "shopping", "支出", "零钱", 77)),
+                snapshot.toString());
+        assertNull(RollupCube.load(rollupFile, RollupCube.Stamp.of(snapshot, TransactionLog.logPathFor(snapshot))));
+        assertEquals(7700, new TransactionLog(snapshot).rollup().month(YearMonth.of(2025, 3)).expenseCents());
+    }
+
+    private static Transaction tx(String id, String time, String type, String incExp, String payment, double amount) {
+        Transaction tx = new Transaction();
+        tx.setTransactionId(id);
+        tx.setTransactionTime(time);
+        tx.setTransactionType(type);
+        tx.setIncExp(incExp);
+        tx.setPaymentMethod(payment);
+        tx.setAmount(amount);
+        return tx;
+    }
+}
@@ -0,0 +1,75 @@
+package utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionStoreTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void shouldAppendPerSessionAndReloadLazily() throws Exception {
+        Path sessions = dir.resolve("sessions");
+        SessionStore store = new SessionStore(sessions, null);
+        ArrayNode msgs = store.getOrCreate("budget/chat", () -> {
+            ArrayNode arr = mapper.createArrayNode();
+            arr.add(message("system", "You are a helpful assistant"));
+            return arr;
+        });
+        ObjectNode user = message("user", "你好");
+        ObjectNode asst = message("assistant", "hello");
+        msgs.add(user);
+        msgs.add(asst);
+        store.append("budget/chat", user, asst);
+        store.flush();
+
+        try (var files = Files.list(sessions)) {
+            assertEquals(1, files.count(), "One file per session");
+        }
+        ArrayNode reloaded = new SessionStore(sessions, null).get("budget/chat");
+        assertEquals(3, reloaded.size());
+        assertEquals("你好", reloaded.get(1).get("content").asText());
+        assertNull(new SessionStore(sessions, null).get("missing"));
+    }
+
+    @Test
+    public void backgroundWriterShouldCoalesceTurns() throws Exception {
+        Path sessions = dir.resolve("sessions");
+        SessionStore store = new SessionStore(sessions, null);
+        store.getOrCreate("s", mapper::createArrayNode);
+        for (int i = 0; i < 5; i++) store.append("s", message("user", "turn " + i));
+
+        Path file = sessions.resolve("s.jsonl");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!Files.exists(file) && System.currentTimeMillis() < deadline) Thread.sleep(20);
+        assertEquals(5, Files.readAllLines(file).size());
+    }
+
+    @Test
+    public void shouldMigrateLegacySingleFile() throws Exception {
+        Path legacy = dir.resolve(".deepseek_sessions.json");
+        Files.writeString(legacy, "{\"chat\":[{\"role\":\"user\",\"content\":\"hi\"}],"
+                + "\"classify_1\":[{\"role\":\"user\",\"content\":\"x\"}]}");
+
+        SessionStore store = new SessionStore(dir.resolve("sessions"), legacy);
+
+        assertEquals("hi", store.get("chat").get(0).get("content").asText());
+        assertNull(store.get("classify_1"));
+        assertFalse(Files.exists(legacy));
+    }
+
+    private ObjectNode message(String role, String content) {
+        return mapper.createObjectNode().put("role", role).put("content", content);
+    }
+}
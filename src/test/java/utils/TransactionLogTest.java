@@ -0,0 +1,159 @@
+package utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pojo.Category;
+import pojo.Transaction;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void shouldRebuildStateFromSnapshotAndLog() throws Exception {
+        Path snapshot = dir.resolve("transactionData.json");
+        JsonUtils.writeTransactionsToJson(List.of(makeTransaction("A", "2025-03-01 10:00:00", "shopping")),
+                snapshot.toString());
+
+        TransactionLog log = new TransactionLog(snapshot);
+        log.appendUpserts(List.of(makeTransaction("B", "2025-03-02 10:00:00", "housing")));
+        log.appendTypeUpdate("\"A\"", "entertainment");
+
+        List<Transaction> all = log.readAll();
+        assertEquals(2, all.size());
+        assertEquals("A", all.get(0).getTransactionId());
+        assertEquals("entertainment", all.get(0).getTransactionType());
+        assertEquals("B", all.get(1).getTransactionId());
+    }
+
+    @Test
+    public void shouldKeepExistingRowUnlessIncomingIsNewer() throws Exception {
+        TransactionLog log = new TransactionLog(dir.resolve("transactionData.json"));
+        log.appendUpserts(List.of(makeTransaction("A", "2025-03-01 10:00:00", "shopping")));
+        log.appendUpserts(List.of(makeTransaction("A", "2025-03-01 10:00:00", "housing")));
+        assertEquals("shopping", log.readAll().get(0).getTransactionType());
+
+        log.appendUpserts(List.of(makeTransaction("A", "2025-03-05 10:00:00", "housing")));
+        assertEquals("housing", log.readAll().get(0).getTransactionType());
+    }
+
+    @Test
+    public void compactShouldFoldLogIntoSnapshot() throws Exception {
+        Path snapshot = dir.resolve("transactionData.json");
+        TransactionLog log = new TransactionLog(snapshot);
+        log.appendUpserts(List.of(makeTransaction("A", "2025-03-01 10:00:00", "shopping"),
+                makeTransaction("B", "2025-03-02 10:00:00", "housing")));
+
+        log.compact();
+
+        assertFalse(Files.exists(log.getLogPath()), "Log should be removed after compaction");
+        assertEquals(2, new TransactionLog(snapshot).readAll().size());
+    }
+
+    @Test
+    public void findShouldUsePersistentIndexAndPendingEntries() throws Exception {
+        Path snapshot = dir.resolve("transactionData.json");
+        JsonUtils.writeTransactionsToJson(List.of(makeTransaction("A", "2025-03-01 10:00:00", "shopping"),
+                makeTransaction("B", "2025-03-02 10:00:00", "shopping")), snapshot.toString());
+        TransactionLog log = new TransactionLog(snapshot);
+
+        assertEquals("2025-03-02 10:00:00", log.find("\"B\"").getTransactionTime());
+        assertTrue(Files.exists(log.getIndexPath()), "Index should be persisted next to the snapshot");
+
+        log.appendTypeUpdates(Map.of("A", "Housing", "B", "transportation"));
+        assertEquals("housing", log.find("A").getTransactionType());
+        assertEquals("transportation", new TransactionLog(snapshot).find("B").getTransactionType());
+        assertNull(log.find("missing"));
+    }
+
+    @Test
+    public void upsertShouldCountInsertedUpdatedAndSkipped() throws Exception {
+        Path snapshot = dir.resolve("transactionData.json");
+        JsonUtils.writeTransactionsToJson(List.of(makeTransaction("A", "2025-03-01 10:00:00", "shopping"),
+                makeTransaction("B", "2025-03-02 10:00:00", "shopping")), snapshot.toString());
+        TransactionLog log = new TransactionLog(snapshot);
+
+        ImportResult result = log.upsert(List.of(
+                makeTransaction("A", "2025-03-01 10:00:00", "housing"),
+                makeTransaction("B", "2025-03-04 10:00:00", "housing"),
+                makeTransaction("C", "2025-03-05 10:00:00", "housing"),
+                makeTransaction("C", "2025-03-05 10:00:00", "housing")));
+
+        assertEquals(new ImportResult(1, 1, 2), result);
+        List<Transaction> all = log.readAll();
+        assertEquals(3, all.size());
+        assertEquals("shopping", all.get(0).getTransactionType());
+        assertEquals("housing", all.get(1).getTransactionType());
+        assertEquals(ImportResult.EMPTY, log.upsert(List.of()));
+    }
+
+    @Test
+    public void wouldChangeShouldOnlyAcceptNewOrNewerRows() throws Exception {
+        TransactionLog log = new TransactionLog(dir.resolve("transactionData.json"));
+        log.appendUpserts(List.of(makeTransaction("A", "2025-03-01 10:00:00", "shopping")));
+
+        assertFalse(log.wouldChange(makeTransaction("A", "2025-03-01 10:00:00", "housing")));
+        assertTrue(log.wouldChange(makeTransaction("A", "2025-03-02 10:00:00", "housing")));
+        assertTrue(log.wouldChange(makeTransaction("B", "2025-03-01 10:00:00", "housing")));
+    }
+
+    @Test
+    public void streamingReaderShouldApplyLogTail() throws Exception {
+        Path snapshot = dir.resolve("transactionData.json");
+        JsonUtils.writeTransactionsToJson(List.of(makeTransaction("A", "2025-03-01 10:00:00", "shopping"),
+                makeTransaction("B", "2025-03-02 10:00:00", "shopping")), snapshot.toString());
+        TransactionLog log = new TransactionLog(snapshot);
+        log.appendTypeUpdate("B", "housing");
+        log.appendUpserts(List.of(makeTransaction("C", "2025-03-03 10:00:00", "housing")));
+
+        ObjectMapper mapper = new ObjectMapper();
+        try (TransactionSpliterator it = new TransactionSpliterator(
+                mapper.getFactory().createParser(snapshot.toFile()), mapper, log.pendingByKey(),
+                t -> "housing".equals(t.getTransactionType()))) {
+            List<Transaction> housing = StreamSupport.stream(it, false).collect(Collectors.toList());
+            assertEquals(List.of("B", "C"), housing.stream().map(Transaction::getTransactionId).toList());
+        }
+    }
+
+    @Test
+    public void classifierShouldFollowAppendsWithoutRetraining() throws Exception {
+        TransactionLog log = new TransactionLog(dir.resolve("transactionData.json"));
+        LocalClassifier lc = log.classifier();
+        assertNull(lc.predict("多点生活", "订单", "商户消费"));
+
+        List<Transaction> rows = List.of(makeTransaction("A", "2025-03-01 10:00:00", "shopping"),
+                makeTransaction("B", "2025-03-02 10:00:00", "shopping"),
+                makeTransaction("C", "2025-03-03 10:00:00", "shopping"));
+        rows.forEach(t -> {
+            t.setCounterparty("多点生活");
+            t.setItem("订单");
+        });
+        log.appendUpserts(rows);
+        assertSame(lc, log.classifier());
+        assertEquals(Category.SHOPPING, lc.classify("多点生活", "订单", "商户消费"));
+
+        log.appendTypeUpdates(Map.of("A", "housing", "B", "housing", "C", "housing"));
+        assertEquals(Category.HOUSING, lc.classify("多点生活", "订单", "商户消费"));
+    }
+
+    private Transaction makeTransaction(String id, String time, String type) {
+        Transaction tx = new Transaction();
+        tx.setTransactionId(id);
+        tx.setTransactionTime(time);
+        tx.setTransactionType(type);
+        tx.setIncExp("支出");
+        tx.setAmount(10);
+        return tx;
+    }
+}
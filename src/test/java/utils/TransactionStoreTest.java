@@ -0,0 +1,86 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import pojo.Transaction;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionStoreTest {
+
+    @Test
+    public void shouldBucketTransactionsByMonth() {
+        TransactionStore store = new TransactionStore(() -> List.of(
+                makeTransaction("2025-02-28 23:59:59"),
+                makeTransaction("\"2025-03-01 00:00:00\""),
+                makeTransaction("2025-03-15 12:00:00"),
+                makeTransaction("not a date")));
+
+        assertEquals(1, store.byMonth(2025, 2).size());
+        assertEquals(2, store.byMonth(2025, 3).size());
+        assertTrue(store.byMonth(2025, 4).isEmpty());
+        assertEquals(3, store.between(YearMonth.of(2025, 1), YearMonth.of(2025, 3)).size());
+        assertEquals(4, store.all().size());
+    }
+
+    @Test
+    public void shouldLoadOnceUntilInvalidated() {
+        AtomicInteger loads = new AtomicInteger();
+        List<Transaction> ledger = new ArrayList<>(List.of(makeTransaction("2025-03-01 10:00:00")));
+        TransactionStore store = new TransactionStore(() -> {
+            loads.incrementAndGet();
+            return ledger;
+        });
+
+        store.byMonth(2025, 3);
+        store.byMonth(2025, 3);
+        assertEquals(1, loads.get());
+
+        ledger.add(makeTransaction("2025-03-02 10:00:00"));
+        store.invalidate();
+        assertEquals(2, store.byMonth(2025, 3).size());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void shouldAnswerRangesFromTheTimeIndex() {
+        TransactionStore store = new TransactionStore(() -> List.of(
+                makeTransaction("2025-03-15 12:00:00"),
+                makeTransaction("2025-02-28 23:59:59"),
+                makeTransaction("2025-03-01 00:00:00"),
+                makeTransaction("2025-03-03 08:00:00"),
+                makeTransaction("2025-03-03 09:00:00"),
+                makeTransaction("not a date")));
+
+        List<Transaction> march = store.range(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 3));
+        assertEquals(List.of("2025-03-01 00:00:00", "2025-03-03 08:00:00", "2025-03-03 09:00:00"),
+                march.stream().map(Transaction::getTransactionTime).toList());
+        assertEquals(1, store.range(LocalDateTime.of(2025, 2, 28, 23, 59, 59), LocalDateTime.of(2025, 3, 1, 0, 0)).size());
+        assertTrue(store.range(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)).isEmpty());
+
+        SortedMap<LocalDate, AggregationEngine.Totals> weekly = store.series(LocalDate.of(2025, 2, 26),
+                LocalDate.of(2025, 3, 16), TransactionStore.Granularity.WEEK);
+        assertEquals(List.of(LocalDate.of(2025, 2, 24), LocalDate.of(2025, 3, 3), LocalDate.of(2025, 3, 10)),
+                List.copyOf(weekly.keySet()), "Monday-based buckets, empty weeks included");
+        assertEquals(List.of(2, 2, 1), weekly.values().stream().map(AggregationEngine.Totals::count).toList());
+
+        SortedMap<LocalDate, AggregationEngine.Totals> rolling = store.rolling(LocalDate.of(2025, 3, 1),
+                LocalDate.of(2025, 3, 4), 3);
+        assertEquals(List.of(2, 2, 3, 2), rolling.values().stream().map(AggregationEngine.Totals::count).toList());
+        assertEquals(300, rolling.get(LocalDate.of(2025, 3, 3)).otherCents());
+    }
+
+    private Transaction makeTransaction(String time) {
+        Transaction tx = new Transaction();
+        tx.setTransactionTime(time);
+        tx.setAmount(1);
+        return tx;
+    }
+}